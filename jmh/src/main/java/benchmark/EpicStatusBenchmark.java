@@ -0,0 +1,71 @@
+package benchmark;
+
+import enums.Status;
+import manager.InMemoryTaskManager;
+import model.Epic;
+import model.Subtask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Пересчёт статуса эпика (updateEpicStatus) на эпиках разного размера: он запускается
+// при каждом изменении, добавлении и удалении подзадачи и при обновлении самого эпика
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpicStatusBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int subtaskCount;
+
+    private InMemoryTaskManager manager;
+    private Epic epic;
+    // Для каждой подзадачи по две версии: новая и завершённая
+    private Subtask[] newVersions;
+    private Subtask[] doneVersions;
+    private boolean[] done;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        epic = new Epic("Большой эпик", "Эпик с " + subtaskCount + " подзадачами");
+        manager.createEpic(epic);
+        newVersions = new Subtask[subtaskCount];
+        doneVersions = new Subtask[subtaskCount];
+        done = new boolean[subtaskCount];
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание " + i, Status.NEW, epic.getId());
+            manager.createSubtask(subtask);
+            newVersions[i] = subtask;
+            doneVersions[i] = new Subtask("Подзадача " + i, "Описание " + i, Status.DONE, epic.getId());
+            doneVersions[i].setId(subtask.getId());
+        }
+    }
+
+    @Benchmark
+    public Status toggleSubtaskStatus() {
+        cursor = (cursor + 7919) % subtaskCount;
+        manager.updateSubtask(done[cursor] ? newVersions[cursor] : doneVersions[cursor]);
+        done[cursor] = !done[cursor];
+        return epic.getStatus();
+    }
+
+    @Benchmark
+    public int createAndDeleteSubtask() {
+        Subtask subtask = new Subtask("Новая подзадача", "Описание", Status.DONE, epic.getId());
+        manager.createSubtask(subtask);
+        manager.deleteSubtaskById(subtask.getId());
+        return subtask.getId();
+    }
+
+    @Benchmark
+    public Status updateEpic() {
+        Epic replacement = new Epic(epic.getName(), epic.getDescription());
+        replacement.setId(epic.getId());
+        manager.updateEpic(replacement);
+        return replacement.getStatus();
+    }
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import enums.Status;
+import manager.InMemoryHistoryManager;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Операции InMemoryHistoryManager при разной длине истории. Повторный просмотр переносит
+// задачу в конец, поэтому после заполнения длина истории не меняется
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private InMemoryHistoryManager history;
+    private Task[] tasks;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new InMemoryHistoryManager();
+        tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание " + i, i + 1, Status.NEW);
+            history.add(tasks[i]);
+        }
+    }
+
+    private Task nextTask() {
+        cursor = (cursor + 7919) % size;
+        return tasks[cursor];
+    }
+
+    @Benchmark
+    public void add() {
+        history.add(nextTask());
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        Task task = nextTask();
+        history.remove(task.getId());
+        history.add(task);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Benchmark
+    public List<Task> getLastTen() {
+        return history.getHistory(10);
+    }
+}
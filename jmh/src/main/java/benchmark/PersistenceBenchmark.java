@@ -0,0 +1,100 @@
+package benchmark;
+
+import enums.SnapshotFormat;
+import enums.Status;
+import manager.DurabilityPolicy;
+import manager.FileBackedTasksManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Запись снимка и загрузка FileBackedTasksManager в обоих форматах. Половина задач - обычные,
+// десятая часть - эпики, остальное - подзадачи, разложенные по эпикам поровну
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    private File directory;
+    private File file;
+    private SnapshotManager manager;
+
+    // Даёт бенчмарку вызвать полную запись снимка
+    static final class SnapshotManager extends FileBackedTasksManager {
+        SnapshotManager(File file, SnapshotFormat format) {
+            super(file, 0, DurabilityPolicy.synchronous(), format);
+        }
+
+        void saveSnapshot() {
+            save();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tasks-bench").toFile();
+        file = new File(directory, "tasks." + format.name().toLowerCase());
+        manager = new SnapshotManager(file, format);
+
+        // Одним пакетом, чтобы заполнение не переписывало файл после каждой задачи
+        manager.batch(tasks -> {
+            int epicCount = Math.max(1, size / 10);
+            int[] epicIds = new int[epicCount];
+            for (int i = 0; i < epicCount; i++) {
+                Epic epic = new Epic("Эпик " + i, "Описание эпика " + i);
+                tasks.createEpic(epic);
+                epicIds[i] = epic.getId();
+            }
+            for (int i = 0; i < size / 2; i++) {
+                tasks.createTask(new Task("Задача " + i, "Описание задачи " + i, Status.values()[i % 3]));
+            }
+            for (int i = epicCount + size / 2; i < size; i++) {
+                tasks.createSubtask(new Subtask("Подзадача " + i, "Описание подзадачи " + i,
+                        Status.values()[i % 3], epicIds[i % epicCount]));
+            }
+            for (int i = 0; i < Math.min(size, 100); i++) {
+                tasks.getEpicById(epicIds[i % epicCount]);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void save() {
+        manager.saveSnapshot();
+    }
+
+    @Benchmark
+    public int loadFromFile() {
+        FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file, 0,
+                DurabilityPolicy.synchronous(), format);
+        int count = loaded.getTasks().size() + loaded.getEpics().size() + loaded.getSubtasks().size();
+        loaded.close();
+        return count;
+    }
+}
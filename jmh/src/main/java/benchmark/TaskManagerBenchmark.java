@@ -0,0 +1,76 @@
+package benchmark;
+
+import enums.Status;
+import manager.InMemoryTaskManager;
+import model.Task;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// CRUD обычных задач InMemoryTaskManager при разном количестве задач в менеджере.
+// Создание идёт в паре с удалением, чтобы размер хранилища не менялся от итерации к итерации
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private InMemoryTaskManager manager;
+    private int[] ids;
+    private Task[] replacements;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        ids = new int[size];
+        replacements = new Task[size];
+        for (int i = 0; i < size; i++) {
+            Task task = new Task("Задача " + i, "Описание задачи " + i, Status.NEW);
+            manager.createTask(task);
+            ids[i] = task.getId();
+            replacements[i] = new Task("Задача " + i, "Новое описание " + i, task.getId(), Status.IN_PROGRESS);
+        }
+    }
+
+    // Перебор id с шагом, взаимно простым с размером, чтобы обращения не шли подряд
+    private int nextIndex() {
+        cursor = (cursor + 7919) % size;
+        return cursor;
+    }
+
+    @Benchmark
+    public Task getTaskById() {
+        return manager.getTaskById(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public void updateTask() {
+        manager.updateTask(replacements[nextIndex()]);
+    }
+
+    @Benchmark
+    public int createAndDeleteTask() {
+        Task task = new Task("Новая задача", "Описание", Status.NEW);
+        manager.createTask(task);
+        manager.deleteTaskById(task.getId());
+        return task.getId();
+    }
+
+    @Benchmark
+    public Object getTasks() {
+        return manager.getTasks();
+    }
+
+    @Benchmark
+    public void iterateAllTasks(Blackhole blackhole) {
+        for (Task task : manager.getAllTasks()) {
+            blackhole.consume(task);
+        }
+    }
+}
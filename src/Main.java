@@ -1,16 +1,23 @@
-import enums.Status;
+import http.HttpTaskServer;
 import interfaces.TaskManager;
-import manager.FileBackedTasksManager;
 import manager.Managers;
-import model.Epic;
-import model.Subtask;
-import model.Task;
 
-import java.io.File;
-import java.util.List;
+import java.io.IOException;
 
 public class Main {
-    public static void main(String[] args) {
-
+    // Запускает HTTP API над потокобезопасным менеджером; порт можно передать первым аргументом
+    public static void main(String[] args) throws IOException {
+        // Без TCP_NODELAY каждый ответ на открытом соединении ждёт отложенного ACK; явно заданное значение не трогаем.
+        // Свойство должно быть задано до первого обращения к классам HTTP-сервера JDK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : HttpTaskServer.DEFAULT_PORT;
+        TaskManager manager = Managers.getConcurrent();
+        HttpTaskServer server = new HttpTaskServer(manager, port);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.println("Сервер задач запущен на порту " + server.getPort()
+                + (server.isVirtualThreads() ? " (виртуальные потоки)" : ""));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package enums;
+
+public enum DurabilityMode {
+    SYNC,
+    GROUP_COMMIT,
+    ASYNC,
+    MANUAL
+}
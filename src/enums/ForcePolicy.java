@@ -0,0 +1,12 @@
+package enums;
+
+// Когда изменения отображённого в память файла принудительно сбрасываются на диск (msync)
+public enum ForcePolicy {
+    // После каждой мутации: изменение переживает сбой ОС, но каждая мутация ждёт диска.
+    // Просмотры при этом только передаются ОС, лог истории сбрасывается при flush() и закрытии
+    EVERY_MUTATION,
+    // При закрытии менеджера и явном flush(), остальное сбрасывает ОС
+    ON_CLOSE,
+    // Только при явном flush(): изменения переживают падение процесса, но не сбой ОС
+    NEVER
+}
@@ -0,0 +1,6 @@
+package enums;
+
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
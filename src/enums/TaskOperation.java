@@ -0,0 +1,33 @@
+package enums;
+
+// Операции TaskManager, по которым ведутся метрики
+public enum TaskOperation {
+    GET_TASKS,
+    DELETE_ALL_TASKS,
+    GET_TASK_BY_ID,
+    CREATE_TASK,
+    UPDATE_TASK,
+    DELETE_TASK_BY_ID,
+    GET_EPICS,
+    DELETE_ALL_EPICS,
+    GET_EPIC_BY_ID,
+    CREATE_EPIC,
+    UPDATE_EPIC,
+    GET_SUBTASKS_BY_EPIC_ID,
+    DELETE_EPIC_BY_ID,
+    GET_SUBTASKS,
+    DELETE_ALL_SUBTASKS,
+    GET_SUBTASK_BY_ID,
+    CREATE_SUBTASK,
+    UPDATE_SUBTASK,
+    DELETE_SUBTASK_BY_ID,
+    GET_HISTORY,
+    GET_ALL_TASKS,
+    STREAM_TASKS,
+    QUERY_TASKS,
+    COUNT_BY_STATUS,
+    GET_TASKS_BY_STATUS,
+    SEARCH,
+    BATCH,
+    CREATE_SUBTASKS
+}
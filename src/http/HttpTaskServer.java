@@ -0,0 +1,490 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import enums.Status;
+import enums.TaskType;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// HTTP/JSON API поверх TaskManager на встроенном com.sun.net.httpserver.
+// Каждый запрос обрабатывается в своём виртуальном потоке, если JVM их поддерживает (Java 21+),
+// иначе в пуле из нескольких потоков на ядро. Менеджер должен быть потокобезопасным, например
+// ConcurrentTaskManager; InMemoryTaskManager и FileBackedTasksManager такими не являются - их чтения
+// идут без блокировки и гоняются с записью.
+// Соединения HTTP/1.1 остаются открытыми между запросами, списки отдаются по частям
+// (chunked) по мере обхода, не собираясь в памяти целиком.
+// Заголовки и тело ответа уходят отдельными записями, поэтому без -Dsun.net.httpserver.nodelay=true
+// алгоритм Нейгла с отложенным ACK задерживает каждый ответ на открытом соединении на ~40 мс.
+// Свойство читается один раз при загрузке классов сервера JDK, так что задаёт его приложение (см. Main).
+//
+// GET    /tasks?type=&status=&epic=&offset=&limit=&after=  - все задачи по запросу, потоком
+// GET    /tasks/page?...                                   - страница и токен продолжения
+// GET    /tasks/{task|epic|subtask}[?id=]                  - одна задача или все задачи типа
+// POST   /tasks/{task|epic|subtask}                        - создать (без id) или обновить (с id)
+// DELETE /tasks/{task|epic|subtask}[?id=]                  - удалить одну или все
+// GET    /tasks/subtask/epic?id=                           - подзадачи эпика
+// POST   /tasks/subtask/batch                              - создать массив подзадач одним пакетом
+// GET    /tasks/history[?limit=], /tasks/search?q=, /tasks/count?type=&status=
+public class HttpTaskServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final Logger LOG = Logger.getLogger(HttpTaskServer.class.getName());
+
+    private final TaskManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Ждёт завершения текущих запросов не дольше delaySeconds
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() через отражение, чтобы код собирался под Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "http-task-server-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 8, threadFactory);
+    }
+
+    // ========== Маршрутизация ==========
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            // Подробности остаются в логе сервера, клиенту они ни к чему
+            LOG.log(Level.SEVERE, "Ошибка при обработке " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI(), e);
+            sendError(exchange, 500, "Внутренняя ошибка сервера");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().substring("/tasks".length());
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String method = exchange.getRequestMethod();
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        switch (path) {
+            case "":
+                if (requireMethod(exchange, method, "GET")) {
+                    streamTasks(exchange, manager.streamTasks(queryFrom(params, Integer.MAX_VALUE)));
+                }
+                break;
+            case "/page":
+                if (requireMethod(exchange, method, "GET")) {
+                    sendPage(exchange, manager.queryTasks(queryFrom(params, DEFAULT_PAGE_LIMIT)));
+                }
+                break;
+            case "/task":
+                handleType(exchange, method, params, TaskType.TASK);
+                break;
+            case "/epic":
+                handleType(exchange, method, params, TaskType.EPIC);
+                break;
+            case "/subtask":
+                handleType(exchange, method, params, TaskType.SUBTASK);
+                break;
+            case "/subtask/epic":
+                if (requireMethod(exchange, method, "GET")) {
+                    sendTasks(exchange, manager.getSubtasksByEpicId(requiredId(params)));
+                }
+                break;
+            case "/subtask/batch":
+                if (requireMethod(exchange, method, "POST")) {
+                    createSubtasks(exchange);
+                }
+                break;
+            case "/history":
+                if (requireMethod(exchange, method, "GET")) {
+                    String limit = params.get("limit");
+                    sendTasks(exchange, limit == null ? manager.getHistory()
+                            : manager.getHistory(Integer.parseInt(limit)));
+                }
+                break;
+            case "/search":
+                if (requireMethod(exchange, method, "GET")) {
+                    sendTasks(exchange, manager.search(params.getOrDefault("q", "")));
+                }
+                break;
+            case "/count":
+                if (requireMethod(exchange, method, "GET")) {
+                    TaskType type = TaskType.valueOf(required(params, "type").toUpperCase(Locale.ROOT));
+                    Status status = Status.valueOf(required(params, "status").toUpperCase(Locale.ROOT));
+                    int count = manager.countByStatus(type, status);
+                    sendJson(exchange, 200, json -> json.beginObject().name("count").value(count).endObject());
+                }
+                break;
+            default:
+                sendError(exchange, 404, "Нет такого ресурса: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void handleType(HttpExchange exchange, String method, Map<String, String> params, TaskType type)
+            throws IOException {
+        switch (method) {
+            case "GET":
+                if (params.containsKey("id")) {
+                    Task task = getById(type, requiredId(params));
+                    if (task == null) {
+                        sendError(exchange, 404, "Задача не найдена: " + params.get("id"));
+                    } else {
+                        sendJson(exchange, 200, json -> TaskJson.write(json, task));
+                    }
+                } else {
+                    streamTasks(exchange, manager.streamTasks(TaskQuery.all().ofType(type)));
+                }
+                break;
+            case "POST":
+                Task task = TaskJson.read(JsonReader.parse(readBody(exchange)), type);
+                if (task.getId() == 0) {
+                    create(task);
+                    if (task.getId() == 0) {
+                        // Подзадача без существующего эпика не создаётся
+                        sendError(exchange, 400, "Эпик не найден: " + ((Subtask) task).getEpicId());
+                    } else {
+                        sendJson(exchange, 201, json -> TaskJson.write(json, task));
+                    }
+                } else if (exists(type, task.getId())) {
+                    update(task);
+                    sendJson(exchange, 200, json -> TaskJson.write(json, task));
+                } else {
+                    sendError(exchange, 404, "Задача не найдена: " + task.getId());
+                }
+                break;
+            case "DELETE":
+                if (params.containsKey("id")) {
+                    deleteById(type, requiredId(params));
+                } else {
+                    deleteAll(type);
+                }
+                sendEmpty(exchange, 204);
+                break;
+            default:
+                sendError(exchange, 405, "Метод не поддерживается: " + method);
+        }
+    }
+
+    private void createSubtasks(HttpExchange exchange) throws IOException {
+        Object body = JsonReader.parse(readBody(exchange));
+        if (!(body instanceof List)) {
+            throw new IllegalArgumentException("Ожидался JSON-массив подзадач");
+        }
+        List<Subtask> subtasks = new ArrayList<>();
+        for (Object item : (List<?>) body) {
+            subtasks.add((Subtask) TaskJson.read(item, TaskType.SUBTASK));
+        }
+        // Как и одиночное создание: подзадача без существующего эпика - ошибка 400, а пакет откатывается целиком
+        manager.batch(batch -> {
+            for (Subtask subtask : subtasks) {
+                batch.createSubtask(subtask);
+                if (subtask.getId() == 0) {
+                    throw new IllegalArgumentException("Эпик не найден: " + subtask.getEpicId());
+                }
+            }
+        });
+        sendJson(exchange, 201, json -> {
+            json.beginArray();
+            for (Subtask subtask : subtasks) {
+                json.value(subtask.getId());
+            }
+            json.endArray();
+        });
+    }
+
+    // ========== Операции менеджера по типу ==========
+
+    private Task getById(TaskType type, int id) {
+        switch (type) {
+            case EPIC:
+                return manager.getEpicById(id);
+            case SUBTASK:
+                return manager.getSubtaskById(id);
+            default:
+                return manager.getTaskById(id);
+        }
+    }
+
+    // Проверка без записи в историю просмотров: первая задача типа с id не меньше заданного
+    private boolean exists(TaskType type, int id) {
+        List<Task> first = manager.queryTasks(TaskQuery.all().ofType(type)
+                .after(TaskQuery.continuationToken(type, id - 1)).limit(1)).getTasks();
+        return !first.isEmpty() && first.get(0).getId() == id;
+    }
+
+    private void create(Task task) {
+        switch (TaskJson.typeOf(task)) {
+            case EPIC:
+                manager.createEpic((Epic) task);
+                break;
+            case SUBTASK:
+                manager.createSubtask((Subtask) task);
+                break;
+            default:
+                manager.createTask(task);
+        }
+    }
+
+    private void update(Task task) {
+        switch (TaskJson.typeOf(task)) {
+            case EPIC:
+                manager.updateEpic((Epic) task);
+                break;
+            case SUBTASK:
+                manager.updateSubtask((Subtask) task);
+                break;
+            default:
+                manager.updateTask(task);
+        }
+    }
+
+    private void deleteById(TaskType type, int id) {
+        switch (type) {
+            case EPIC:
+                manager.deleteEpicById(id);
+                break;
+            case SUBTASK:
+                manager.deleteSubtaskById(id);
+                break;
+            default:
+                manager.deleteTaskById(id);
+        }
+    }
+
+    private void deleteAll(TaskType type) {
+        switch (type) {
+            case EPIC:
+                manager.deleteAllEpics();
+                break;
+            case SUBTASK:
+                manager.deleteAllSubtasks();
+                break;
+            default:
+                manager.deleteAllTasks();
+        }
+    }
+
+    // ========== Запрос ==========
+
+    private static TaskQuery queryFrom(Map<String, String> params, int defaultLimit) {
+        TaskQuery query = TaskQuery.all();
+        if (params.containsKey("type")) {
+            query = query.ofType(TaskType.valueOf(params.get("type").toUpperCase(Locale.ROOT)));
+        }
+        if (params.containsKey("status")) {
+            query = query.withStatus(Status.valueOf(params.get("status").toUpperCase(Locale.ROOT)));
+        }
+        if (params.containsKey("epic")) {
+            query = query.inEpic(Integer.parseInt(params.get("epic")));
+        }
+        if (params.containsKey("offset")) {
+            query = query.skip(Integer.parseInt(params.get("offset")));
+        }
+        String limit = params.get("limit");
+        if (limit != null || defaultLimit != Integer.MAX_VALUE) {
+            query = query.limit(limit == null ? defaultLimit : Integer.parseInt(limit));
+        }
+        return query.after(params.get("after"));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Не указан параметр " + name);
+        }
+        return value;
+    }
+
+    private static int requiredId(Map<String, String> params) {
+        return Integer.parseInt(required(params, "id"));
+    }
+
+    private static boolean requireMethod(HttpExchange exchange, String method, String expected) throws IOException {
+        if (method.equals(expected)) {
+            return true;
+        }
+        sendError(exchange, 405, "Метод не поддерживается: " + method);
+        return false;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream input = exchange.getRequestBody();
+        byte[] body = input.readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Тело запроса больше " + MAX_BODY_BYTES + " байт");
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // ========== Ответ ==========
+
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    // Небольшой ответ собирается целиком, чтобы отдать его с Content-Length
+    private static void sendJson(HttpExchange exchange, int code, Body body) throws IOException {
+        StringWriter buffer = new StringWriter();
+        body.write(new JsonWriter(buffer));
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    // Длина заранее неизвестна: заголовки уходят сразу, тело - частями по мере записи
+    private static void streamJson(HttpExchange exchange, Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer output = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024)) {
+            JsonWriter json = new JsonWriter(output);
+            body.write(json);
+            json.flush();
+        }
+    }
+
+    private static void streamTasks(HttpExchange exchange, Stream<Task> tasks) throws IOException {
+        try (tasks) {
+            Iterator<Task> iterator = tasks.iterator();
+            streamJson(exchange, json -> {
+                json.beginArray();
+                while (iterator.hasNext()) {
+                    TaskJson.write(json, iterator.next());
+                }
+                json.endArray();
+            });
+        }
+    }
+
+    private static void sendTasks(HttpExchange exchange, List<? extends Task> tasks) throws IOException {
+        streamJson(exchange, json -> {
+            json.beginArray();
+            for (Task task : tasks) {
+                TaskJson.write(json, task);
+            }
+            json.endArray();
+        });
+    }
+
+    private static void sendPage(HttpExchange exchange, TaskPage page) throws IOException {
+        streamJson(exchange, json -> {
+            json.beginObject().name("tasks").beginArray();
+            for (Task task : page.getTasks()) {
+                TaskJson.write(json, task);
+            }
+            json.endArray().name("next").value(page.getContinuationToken()).endObject();
+        });
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int code) throws IOException {
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    // Если заголовки уже ушли (ошибка посреди потока), ответ остаётся оборванным
+    private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        sendJson(exchange, code, json -> json.beginObject().name("error").value(message).endObject());
+    }
+}
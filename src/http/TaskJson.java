@@ -0,0 +1,108 @@
+package http;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Представление задач в JSON: {"id":1,"type":"SUBTASK","name":"...","description":"...","status":"NEW","epicId":2}.
+// У эпика вместо epicId - список subtaskIds
+final class TaskJson {
+    private TaskJson() {
+    }
+
+    static TaskType typeOf(Task task) {
+        return task instanceof Epic
+                ? TaskType.EPIC
+                : task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+    }
+
+    static void write(JsonWriter json, Task task) throws IOException {
+        TaskType type = typeOf(task);
+        json.beginObject()
+                .name("id").value(task.getId())
+                .name("type").value(type.name())
+                .name("name").value(task.getName())
+                .name("description").value(task.getDescription())
+                .name("status").value(task.getStatus() == null ? null : task.getStatus().name());
+        if (type == TaskType.SUBTASK) {
+            json.name("epicId").value(((Subtask) task).getEpicId());
+        } else if (type == TaskType.EPIC) {
+            Epic epic = (Epic) task;
+            json.name("subtaskIds").beginArray();
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                json.value(epic.getSubtaskId(i));
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    // Задача нужного типа из тела запроса; id 0 означает новую задачу
+    static Task read(Object body, TaskType type) {
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("Ожидался JSON-объект задачи");
+        }
+        Map<?, ?> fields = (Map<?, ?>) body;
+        String name = stringField(fields, "name");
+        String description = stringField(fields, "description");
+        int id = intField(fields, "id");
+        Status status = statusField(fields);
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(name, description);
+                break;
+            case SUBTASK:
+                int epicId = intField(fields, "epicId");
+                if (epicId <= 0) {
+                    throw new IllegalArgumentException("У подзадачи должен быть epicId");
+                }
+                task = new Subtask(name, description, status, epicId);
+                break;
+            default:
+                task = new Task(name, description, status);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static String stringField(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (value == null) {
+            return "";
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть строкой");
+        }
+        return (String) value;
+    }
+
+    static int intField(Map<?, ?> fields, String name) {
+        Object value = fields.get(name);
+        if (value == null) {
+            return 0;
+        }
+        if (!(value instanceof Long) || (Long) value < 0 || (Long) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Поле " + name + " должно быть неотрицательным целым");
+        }
+        return ((Long) value).intValue();
+    }
+
+    private static Status statusField(Map<?, ?> fields) {
+        Object value = fields.get("status");
+        if (value == null) {
+            return Status.NEW;
+        }
+        try {
+            return Status.valueOf(String.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный статус: " + value, e);
+        }
+    }
+}
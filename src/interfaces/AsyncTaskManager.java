@@ -0,0 +1,69 @@
+package interfaces;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// Неблокирующий вариант TaskManager: операции ставятся в очередь и выполняются по порядку,
+// результат приходит через CompletableFuture. Future мутации завершается, когда изменение
+// сброшено на устройство (fsync). Ленивого streamTasks нет: поток читался бы вне очереди, вместо него - queryTasks.
+// Если запись на устройство не удалась, future мутаций завершаются ManagerSaveException, но сами
+// изменения остаются применёнными и повторять их не нужно: менеджер отклоняет все операции, кроме
+// flush(), пока flush() не запишет их
+public interface AsyncTaskManager {
+    // Методы для обычных задач
+    CompletableFuture<Map<Integer, Task>> getTasks();
+    CompletableFuture<Void> deleteAllTasks();
+    CompletableFuture<Task> getTaskById(int id);
+    CompletableFuture<Void> createTask(Task task);
+    CompletableFuture<Void> updateTask(Task task);
+    CompletableFuture<Void> deleteTaskById(int id);
+
+    // Методы для эпиков
+    CompletableFuture<Map<Integer, Epic>> getEpics();
+    CompletableFuture<Void> deleteAllEpics();
+    CompletableFuture<Epic> getEpicById(int id);
+    CompletableFuture<Void> createEpic(Epic epic);
+    CompletableFuture<Void> updateEpic(Epic epic);
+    CompletableFuture<List<Subtask>> getSubtasksByEpicId(int id);
+    CompletableFuture<Void> deleteEpicById(int id);
+
+    // Методы для подзадач
+    CompletableFuture<Map<Integer, Subtask>> getSubtasks();
+    CompletableFuture<Void> deleteAllSubtasks();
+    CompletableFuture<Subtask> getSubtaskById(int id);
+    CompletableFuture<Void> createSubtask(Subtask subtask);
+    CompletableFuture<Void> updateSubtask(Subtask subtask);
+    CompletableFuture<Void> deleteSubtaskById(int id);
+
+    // История просмотров
+    CompletableFuture<List<Task>> getHistory();
+    CompletableFuture<List<Task>> getHistory(int limit);
+
+    CompletableFuture<List<Task>> getAllTasks();
+
+    CompletableFuture<TaskPage> queryTasks(TaskQuery query);
+
+    CompletableFuture<Integer> countByStatus(TaskType type, Status status);
+    CompletableFuture<List<Task>> getTasksByStatus(TaskType type, Status status);
+
+    CompletableFuture<List<Task>> search(String query);
+
+    // Пакет применяется целиком или откатывается; mutations выполняется в потоке записи
+    CompletableFuture<Void> batch(Consumer<TaskManager> mutations);
+
+    CompletableFuture<Void> createSubtasks(Collection<Subtask> subtasks);
+
+    // Записывает на устройство всё применённое; после неудачной записи снова открывает менеджер
+    CompletableFuture<Void> flush();
+}
@@ -8,4 +8,22 @@ public interface HistoryManager {
     void add(Task task);
     void remove(int id);
     List<Task> getHistory();
+    // Последние limit просмотров, от давних к недавним
+    List<Task> getHistory(int limit);
+
+    // Ограничение возраста записей, 0 - без ограничения
+    default long getMaxAgeMillis() {
+        return 0;
+    }
+
+    // Время просмотра по часам системы или 0, если записи нет или история время не хранит
+    default long getViewedAtMillis(int id) {
+        return 0;
+    }
+
+    // Просмотр из сохранённой истории, случившийся viewedAtMillis по часам системы;
+    // устаревший просмотр не добавляется и убирает прежнюю запись задачи
+    default void restore(Task task, long viewedAtMillis) {
+        add(task);
+    }
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package interfaces;
 
+import enums.Status;
+import enums.TaskType;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     // Методы для обычных задач
@@ -35,7 +42,26 @@ public interface TaskManager {
 
     // История просмотров
     List<Task> getHistory();
+    List<Task> getHistory(int limit);
 
     // Дополнительный метод для получения всех задач
     List<Task> getAllTasks();
+
+    // Ленивые запросы: задачи перебираются по мере чтения, без копирования хранилищ
+    Stream<Task> streamTasks(TaskQuery query);
+    TaskPage queryTasks(TaskQuery query);
+
+    // Индекс по статусу: количество за O(1), состав - пропорционально размеру результата
+    int countByStatus(TaskType type, Status status);
+    List<Task> getTasksByStatus(TaskType type, Status status);
+
+    // Поиск по словам названия и описания: нужны все слова, слово с * на конце - префикс
+    List<Task> search(String query);
+
+    // Пакет изменений: применяется целиком или, если mutations бросит исключение, откатывается.
+    // Статус каждого затронутого эпика пересчитывается один раз в конце пакета
+    void batch(Consumer<TaskManager> mutations);
+
+    // Создаёт подзадачи одним пакетом
+    void createSubtasks(Collection<Subtask> subtasks);
 }
\ No newline at end of file
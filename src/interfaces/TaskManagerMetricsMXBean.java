@@ -0,0 +1,25 @@
+package interfaces;
+
+import model.OperationStats;
+
+import java.util.List;
+
+// Метрики менеджера задач в JMX: задержки и счётчики по операциям и, для менеджера с файлом,
+// объём записи и длительность записи снимков и загрузки
+public interface TaskManagerMetricsMXBean {
+    // Только операции, которые вызывались с последнего сброса
+    List<OperationStats> getOperations();
+    long getTotalOperations();
+    long getTotalErrors();
+
+    // Для менеджера без файла - нули
+    long getBytesWritten();
+    long getSaveCount();
+    double getSaveP50Millis();
+    double getSaveP99Millis();
+    double getSaveMaxMillis();
+    long getLoadCount();
+    double getLoadMaxMillis();
+
+    void reset();
+}
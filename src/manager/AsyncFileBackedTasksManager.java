@@ -0,0 +1,382 @@
+package manager;
+
+import enums.DurabilityMode;
+import enums.Status;
+import enums.TaskType;
+import interfaces.AsyncTaskManager;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// AsyncTaskManager поверх FileBackedTasksManager. Все операции выполняет один поток записи
+// в порядке постановки: он забирает из очереди всё накопившееся, применяет мутации к менеджеру,
+// один раз вызывает flush() (с fsync) и только потом завершает future этих мутаций. Так одна запись
+// на диск подтверждает целую группу, а вызывающие не ждут друг друга. Чтение видит все
+// поставленные до него изменения, но записи на диск не ждёт.
+// Записью владеет только поток записи, поэтому менеджер должен быть в режиме DurabilityPolicy.manual():
+// без своего фонового потока, который писал бы то же состояние ещё раз и спорил за монитор.
+// Future завершаются в потоке записи - долгие обработчики стоит вешать через *Async.
+// Задачу, переданную в мутацию, нельзя менять, пока её future не завершится.
+// Если запись группы не удалась, её мутации остаются применёнными (их уже могли прочитать):
+// future группы завершаются ManagerSaveException, а следующие операции отклоняются, пока flush()
+// не запишет состояние. Повторять такие мутации не нужно - повтор создал бы дубликат
+public class AsyncFileBackedTasksManager implements AsyncTaskManager, AutoCloseable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final Operation<Void> STOP = new Operation<>(false, false, () -> null);
+
+    private final FileBackedTasksManager delegate;
+    private final BlockingQueue<Operation<?>> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+    // Ошибка последней неудачной записи; пока она есть, выполняется только flush()
+    private volatile Throwable failure;
+
+    public AsyncFileBackedTasksManager(FileBackedTasksManager delegate) {
+        this(delegate, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    // Если поток записи отстал на queueCapacity операций, вызывающий ждёт места в очереди
+    public AsyncFileBackedTasksManager(FileBackedTasksManager delegate, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Ёмкость очереди должна быть положительной: " + queueCapacity);
+        }
+        if (delegate.getDurability().getMode() != DurabilityMode.MANUAL) {
+            throw new IllegalArgumentException("Нужен менеджер в режиме MANUAL: " + delegate.getDurability());
+        }
+        this.delegate = delegate;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::run, "task-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public FileBackedTasksManager getDelegate() {
+        return delegate;
+    }
+
+    // Ошибка записи, из-за которой менеджер отклоняет операции, или null
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    // ========== Очередь ==========
+
+    private static final class Operation<T> {
+        final boolean mutation;
+        // Выполняется и после неудачной записи
+        final boolean flush;
+        final Supplier<T> action;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+
+        Operation(boolean mutation, boolean flush, Supplier<T> action) {
+            this.mutation = mutation;
+            this.flush = flush;
+            this.action = action;
+        }
+
+        // false - операция не выполнилась, future уже завершён с ошибкой
+        boolean apply() {
+            try {
+                result = action.get();
+                return true;
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                return false;
+            }
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+
+    private CompletableFuture<Void> write(Runnable action) {
+        return submit(new Operation<>(true, false, () -> {
+            action.run();
+            return null;
+        }));
+    }
+
+    private <T> CompletableFuture<T> read(Supplier<T> action) {
+        return submit(new Operation<>(false, false, action));
+    }
+
+    private <T> CompletableFuture<T> submit(Operation<T> operation) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Менеджер закрыт"));
+        }
+        try {
+            queue.put(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(
+                    new ManagerSaveException("Прервано ожидание места в очереди записи", e));
+        }
+        // close() мог успеть разобрать очередь: тогда операцию отменяет тот, кто первым её уберёт
+        if (closed && queue.remove(operation)) {
+            operation.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+        }
+        return operation.future;
+    }
+
+    private void run() {
+        List<Operation<?>> group = new ArrayList<>();
+        List<Operation<?>> applied = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(group);
+
+            for (Operation<?> operation : group) {
+                if (operation == STOP) {
+                    stopping = true;
+                } else if (stopping) {
+                    operation.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+                } else if (failure != null && !operation.flush) {
+                    operation.future.completeExceptionally(
+                            new IllegalStateException("Запись на диск не удалась, нужен flush()", failure));
+                } else if (operation.apply()) {
+                    if (operation.mutation) {
+                        applied.add(operation);
+                    } else {
+                        operation.complete();
+                    }
+                }
+            }
+            commit(applied);
+            group.clear();
+            applied.clear();
+        }
+        for (Operation<?> operation = queue.poll(); operation != null; operation = queue.poll()) {
+            operation.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+        }
+    }
+
+    // Одна запись на диск на всю группу мутаций. При ошибке мутации группы уже применены,
+    // поэтому менеджер отклоняет операции до успешного flush()
+    private void commit(List<Operation<?>> applied) {
+        if (applied.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.flush();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            ManagerSaveException unsaved = new ManagerSaveException(
+                    "Изменение применено, но не записано на диск: повторять его не нужно, нужен flush()", e);
+            for (Operation<?> operation : applied) {
+                operation.future.completeExceptionally(unsaved);
+            }
+            return;
+        }
+        for (Operation<?> operation : applied) {
+            operation.complete();
+        }
+    }
+
+    // Записывает всё применённое; успешная запись снимает ошибку прошлой и снова открывает менеджер
+    @Override
+    public CompletableFuture<Void> flush() {
+        return submit(new Operation<>(false, true, () -> {
+            delegate.flush();
+            failure = null;
+            return null;
+        }));
+    }
+
+    // Выполняет уже поставленные операции, затем закрывает менеджер; новые завершаются ошибкой
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(STOP);
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            delegate.close();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ========== Обычные задачи ==========
+
+    @Override
+    public CompletableFuture<Map<Integer, Task>> getTasks() {
+        return read(delegate::getTasks);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllTasks() {
+        return write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public CompletableFuture<Task> getTaskById(int id) {
+        return read(() -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> createTask(Task task) {
+        return write(() -> delegate.createTask(task));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTask(Task task) {
+        return write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTaskById(int id) {
+        return write(() -> delegate.deleteTaskById(id));
+    }
+
+    // ========== Эпики ==========
+
+    @Override
+    public CompletableFuture<Map<Integer, Epic>> getEpics() {
+        return read(delegate::getEpics);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllEpics() {
+        return write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public CompletableFuture<Epic> getEpicById(int id) {
+        return read(() -> delegate.getEpicById(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> createEpic(Epic epic) {
+        return write(() -> delegate.createEpic(epic));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateEpic(Epic epic) {
+        return write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public CompletableFuture<List<Subtask>> getSubtasksByEpicId(int id) {
+        return read(() -> delegate.getSubtasksByEpicId(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEpicById(int id) {
+        return write(() -> delegate.deleteEpicById(id));
+    }
+
+    // ========== Подзадачи ==========
+
+    @Override
+    public CompletableFuture<Map<Integer, Subtask>> getSubtasks() {
+        return read(delegate::getSubtasks);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAllSubtasks() {
+        return write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public CompletableFuture<Subtask> getSubtaskById(int id) {
+        return read(() -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> createSubtask(Subtask subtask) {
+        return write(() -> delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSubtask(Subtask subtask) {
+        return write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSubtaskById(int id) {
+        return write(() -> delegate.deleteSubtaskById(id));
+    }
+
+    // ========== История и запросы ==========
+
+    @Override
+    public CompletableFuture<List<Task>> getHistory() {
+        return read(delegate::getHistory);
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getHistory(int limit) {
+        return read(() -> delegate.getHistory(limit));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getAllTasks() {
+        return read(delegate::getAllTasks);
+    }
+
+    @Override
+    public CompletableFuture<TaskPage> queryTasks(TaskQuery query) {
+        return read(() -> delegate.queryTasks(query));
+    }
+
+    @Override
+    public CompletableFuture<Integer> countByStatus(TaskType type, Status status) {
+        return read(() -> delegate.countByStatus(type, status));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> getTasksByStatus(TaskType type, Status status) {
+        return read(() -> delegate.getTasksByStatus(type, status));
+    }
+
+    @Override
+    public CompletableFuture<List<Task>> search(String query) {
+        return read(() -> delegate.search(query));
+    }
+
+    // ========== Пакетные изменения ==========
+
+    @Override
+    public CompletableFuture<Void> batch(Consumer<TaskManager> mutations) {
+        return write(() -> delegate.batch(mutations));
+    }
+
+    @Override
+    public CompletableFuture<Void> createSubtasks(Collection<Subtask> subtasks) {
+        return write(() -> delegate.createSubtasks(subtasks));
+    }
+}
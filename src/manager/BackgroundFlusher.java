@@ -0,0 +1,162 @@
+package manager;
+
+import enums.DurabilityMode;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Фоновый поток, который пачками записывает накопленные изменения менеджера
+class BackgroundFlusher implements AutoCloseable {
+    private static final Object MUTATION = new Object();
+    // Как часто ожидающий места в очереди проверяет, не остановлен ли поток
+    private static final long CLOSE_CHECK_MILLIS = 50;
+    // Пауза перед повтором неудавшейся записи
+    static final long RETRY_MILLIS = 200;
+
+    private final DurabilityPolicy policy;
+    private final Runnable flushAction;
+    private final BlockingQueue<Object> queue;
+    private final Object monitor = new Object();
+    private final Thread thread;
+
+    private int pending;
+    private long firstPendingAt;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    BackgroundFlusher(DurabilityPolicy policy, Runnable flushAction, String name) {
+        if (policy.getMode() == DurabilityMode.SYNC || policy.getMode() == DurabilityMode.MANUAL) {
+            throw new IllegalArgumentException("Режиму " + policy.getMode() + " фоновый поток не нужен");
+        }
+        this.policy = policy;
+        this.flushAction = flushAction;
+        this.queue = policy.getMode() == DurabilityMode.ASYNC
+                ? new ArrayBlockingQueue<>(policy.getQueueCapacity())
+                : null;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Регистрирует мутацию; в режиме ASYNC ждёт, пока в очереди появится место.
+    // Мутация к этому моменту уже применена, поэтому исключений здесь нет: ошибки записи
+    // видны через getFailure(), а мутацию, не дождавшуюся очереди, запишет следующая запись
+    // или close() владельца
+    void submit() {
+        if (queue != null) {
+            try {
+                while (!queue.offer(MUTATION, CLOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            registerPending();
+        }
+    }
+
+    // То же, что submit, но никогда не блокирует: переполненная очередь и так гарантирует запись
+    void touch() {
+        if (queue != null) {
+            queue.offer(MUTATION);
+        } else {
+            registerPending();
+        }
+    }
+
+    // Ошибка последней фоновой записи или null; поток повторяет запись, пока она не пройдёт
+    RuntimeException getFailure() {
+        return failure;
+    }
+
+    // Владелец успешно записал всё накопленное сам
+    void clearFailure() {
+        failure = null;
+    }
+
+    private void registerPending() {
+        synchronized (monitor) {
+            if (pending++ == 0) {
+                firstPendingAt = System.nanoTime();
+                monitor.notifyAll();
+            } else if (pending >= policy.getMaxMutations()) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    // Неудавшаяся запись повторяется без новых мутаций: изменения уже в памяти и ждут диска
+    private void run() {
+        boolean retry = false;
+        while (!closed) {
+            try {
+                if (retry) {
+                    Thread.sleep(RETRY_MILLIS);
+                    takeAll();
+                } else if (queue != null) {
+                    queue.take();
+                    // Все накопившиеся мутации покрываются одной записью
+                    queue.clear();
+                } else {
+                    awaitGroup();
+                }
+                flushAction.run();
+                failure = null;
+                retry = false;
+            } catch (InterruptedException e) {
+                // close() прерывает ожидание, остаток записывает вызывающий поток
+            } catch (RuntimeException e) {
+                failure = e;
+                retry = true;
+            }
+        }
+    }
+
+    // Повтор покрывает и мутации, накопившиеся с прошлой попытки
+    private void takeAll() {
+        if (queue != null) {
+            queue.clear();
+        } else {
+            synchronized (monitor) {
+                pending = 0;
+            }
+        }
+    }
+
+    private void awaitGroup() throws InterruptedException {
+        synchronized (monitor) {
+            while (pending == 0) {
+                monitor.wait();
+            }
+
+            long deadline = firstPendingAt + TimeUnit.MILLISECONDS.toNanos(policy.getMaxDelayMillis());
+            while (pending < policy.getMaxMutations()) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, left);
+            }
+            pending = 0;
+        }
+    }
+
+    // Останавливает поток; последнюю запись и её ошибки берёт на себя владелец
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Двоичный снимок состояния менеджера.
+// Формат (big-endian):
+//   int magic, byte version, int count,
+//   count записей: byte type, int id, byte status, [int epicId у подзадач], string name, string description,
+//   int historySize, historySize идентификаторов.
+// Строка - int длина в байтах (-1 для null) и байты UTF-8, тип и статус - номер константы перечисления.
+public final class BinarySnapshot {
+    static final int MAGIC = 0x544D4752; // "TMGR"
+    static final byte VERSION = 1;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    public static boolean isBinary(File file) {
+        if (file.length() < Integer.BYTES) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла " + file, e);
+        }
+    }
+
+    public static void write(File file, Collection<Task> tasks, Collection<Epic> epics,
+                             Collection<Subtask> subtasks, List<Integer> historyIds) {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(tasks.size() + epics.size() + subtasks.size());
+
+            for (Task task : tasks) {
+                writeTask(out, TaskType.TASK, task);
+            }
+            for (Epic epic : epics) {
+                writeTask(out, TaskType.EPIC, epic);
+            }
+            for (Subtask subtask : subtasks) {
+                writeTask(out, TaskType.SUBTASK, subtask);
+            }
+
+            out.writeInt(historyIds.size());
+            for (int id : historyIds) {
+                out.writeInt(id);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при сохранении в файл", e);
+        }
+    }
+
+    private static void writeTask(DataOutputStream out, TaskType type, Task task) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeInt(task.getId());
+        out.writeByte(task.getStatus().ordinal());
+        if (type == TaskType.SUBTASK) {
+            out.writeInt(((Subtask) task).getEpicId());
+        }
+        writeString(out, task.getName());
+        writeString(out, task.getDescription());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Передаёт задачи из снимка в sink и возвращает сохранённую историю
+    public static List<Integer> read(File file, Consumer<Task> sink) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снимок больше 2 ГБ не поддерживается: " + file, null);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new ManagerSaveException("Файл не является двоичным снимком: " + file, null);
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version, null);
+            }
+
+            byte[] scratch = new byte[256];
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                TaskType type = TYPES[buffer.get()];
+                int id = buffer.getInt();
+                Status status = STATUSES[buffer.get()];
+                int epicId = type == TaskType.SUBTASK ? buffer.getInt() : 0;
+
+                int nameLength = readLength(buffer, file);
+                if (nameLength > scratch.length) {
+                    scratch = new byte[Math.max(nameLength, scratch.length * 2)];
+                }
+                String name = readString(buffer, nameLength, scratch);
+
+                int descriptionLength = readLength(buffer, file);
+                if (descriptionLength > scratch.length) {
+                    scratch = new byte[Math.max(descriptionLength, scratch.length * 2)];
+                }
+                String description = readString(buffer, descriptionLength, scratch);
+
+                sink.accept(createTask(type, id, name, description, status, epicId));
+            }
+
+            int historySize = buffer.getInt();
+            if (historySize < 0 || historySize > buffer.remaining() / Integer.BYTES) {
+                throw new ManagerSaveException("Повреждённый снимок: " + file, null);
+            }
+            List<Integer> historyIds = new ArrayList<>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                historyIds.add(buffer.getInt());
+            }
+            return historyIds;
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Повреждённый снимок: " + file, e);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при загрузке из файла", e);
+        }
+    }
+
+    // Длина строки: -1 для null, иначе не больше оставшихся байт, чтобы битая длина не выделила лишнего
+    private static int readLength(MappedByteBuffer buffer, File file) {
+        int length = buffer.getInt();
+        if (length < -1 || length > buffer.remaining()) {
+            throw new ManagerSaveException("Повреждённый снимок: " + file, null);
+        }
+        return length;
+    }
+
+    private static String readString(MappedByteBuffer buffer, int length, byte[] scratch) {
+        if (length < 0) {
+            return null;
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Task createTask(TaskType type, int id, String name, String description, Status status, int epicId) {
+        switch (type) {
+            case TASK:
+                return new Task(name, description, id, status);
+
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                return epic;
+
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, epicId);
+                subtask.setId(id);
+                return subtask;
+
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package manager;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Читает строки в переиспользуемый массив символов вместо создания String на каждую строку.
+// После next() текущая строка без пробелов по краям лежит в buffer()[start(), end()).
+final class CharLineReader {
+    private final Reader reader;
+    private char[] buffer = new char[1 << 16];
+    private int filled;
+    private int next;
+    private int start;
+    private int end;
+
+    CharLineReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    boolean isEmpty() {
+        return start == end;
+    }
+
+    String line() {
+        return new String(buffer, start, end - start);
+    }
+
+    boolean next() throws IOException {
+        while (true) {
+            for (int i = next; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(next, i);
+                    next = i + 1;
+                    return true;
+                }
+            }
+
+            if (!fill()) {
+                if (next < filled) {
+                    setLine(next, filled);
+                    next = filled;
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    // Сдвигает незаконченную строку в начало буфера и дочитывает данные
+    private boolean fill() throws IOException {
+        int rest = filled - next;
+        if (next > 0) {
+            System.arraycopy(buffer, next, buffer, 0, rest);
+        } else if (rest == buffer.length) {
+            char[] grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, rest);
+            buffer = grown;
+        }
+        filled = rest;
+        next = 0;
+
+        int read = reader.read(buffer, filled, buffer.length - filled);
+        if (read <= 0) {
+            return false;
+        }
+        filled += read;
+        return true;
+    }
+
+    private void setLine(int from, int to) {
+        while (from < to && buffer[from] <= ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] <= ' ') {
+            to--;
+        }
+        start = from;
+        end = to;
+    }
+}
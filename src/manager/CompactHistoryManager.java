@@ -0,0 +1,293 @@
+package manager;
+
+import interfaces.HistoryManager;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// История просмотров без узлов: запись - номер ячейки в параллельных массивах ids/tasks/viewedAt/prev/next,
+// связи списка - номера ячеек. Поиск ячейки по id - таблица на открытой адресации в двух int[].
+// Повторный просмотр переставляет ячейку в хвост, освобождённые ячейки образуют список через next,
+// поэтому просмотр ничего не выделяет, пока история не растёт. Ограничения - как у InMemoryHistoryManager.
+// Не потокобезопасен.
+public class CompactHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    // Ячейки записей
+    private int[] ids = new int[MIN_CAPACITY];
+    private Task[] tasks = new Task[MIN_CAPACITY];
+    // Время просмотра нужно только при ограничении по возрасту, иначе null
+    private long[] viewedAt;
+    private int[] prev = new int[MIN_CAPACITY];
+    private int[] next = new int[MIN_CAPACITY];
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    // Ячеек когда-либо занято; свободные лежат в списке freeHead
+    private int used;
+    private int freeHead = NONE;
+
+    // id -> номер ячейки + 1, 0 - пусто
+    private int[] keys = new int[MIN_CAPACITY * 2];
+    private int[] cells = new int[MIN_CAPACITY * 2];
+    private int mask = MIN_CAPACITY * 2 - 1;
+    private int threshold = MIN_CAPACITY * 3 / 2;
+
+    // Ограничения истории, 0 - без ограничения
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final long maxAgeNanos;
+
+    public CompactHistoryManager() {
+        this(0, 0);
+    }
+
+    public CompactHistoryManager(int maxEntries, long maxAgeMillis) {
+        if (maxEntries < 0 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Ограничения истории не могут быть отрицательными: "
+                    + maxEntries + ", " + maxAgeMillis);
+        }
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.viewedAt = maxAgeMillis > 0 ? new long[MIN_CAPACITY] : null;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    // Возраст считается по System.nanoTime(), который не зависит от перевода часов
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        link(task, now, now);
+    }
+
+    // Записи восстанавливаются по порядку просмотров, поэтому список остаётся упорядоченным по времени
+    @Override
+    public void restore(Task task, long viewedAtMillis) {
+        if (task == null) {
+            return;
+        }
+        long ageMillis = Math.max(0, System.currentTimeMillis() - viewedAtMillis);
+        if (maxAgeMillis > 0 && ageMillis > maxAgeMillis) {
+            remove(task.getId());
+            return;
+        }
+        long now = System.nanoTime();
+        link(task, now - TimeUnit.MILLISECONDS.toNanos(ageMillis), now);
+    }
+
+    // Время хранится только при ограничении по возрасту
+    @Override
+    public long getViewedAtMillis(int id) {
+        int cell = find(id);
+        if (cell == NONE || viewedAt == null) {
+            return 0;
+        }
+        return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - viewedAt[cell]);
+    }
+
+    private void link(Task task, long viewedAtNanos, long now) {
+        int cell = find(task.getId());
+        if (cell != NONE) {
+            unlink(cell);
+        } else {
+            cell = allocate();
+            put(task.getId(), cell);
+        }
+        ids[cell] = task.getId();
+        tasks[cell] = task;
+        linkLast(cell);
+
+        if (maxEntries > 0 && size > maxEntries) {
+            removeCell(head);
+        }
+        if (viewedAt != null) {
+            viewedAt[cell] = viewedAtNanos;
+            evictExpired(now);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        int cell = find(id);
+        if (cell != NONE) {
+            removeCell(cell);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        evictExpired(System.nanoTime());
+        List<Task> result = new ArrayList<>(size);
+        for (int cell = head; cell != NONE; cell = next[cell]) {
+            result.add(tasks[cell]);
+        }
+        return result;
+    }
+
+    // Последние limit просмотров в том же порядке: копируется только хвост списка
+    @Override
+    public List<Task> getHistory(int limit) {
+        evictExpired(System.nanoTime());
+        int count = Math.min(Math.max(limit, 0), size);
+        List<Task> result = new ArrayList<>(count);
+        if (count == 0) {
+            return result;
+        }
+        int cell = tail;
+        for (int i = 1; i < count; i++) {
+            cell = prev[cell];
+        }
+        for (; cell != NONE; cell = next[cell]) {
+            result.add(tasks[cell]);
+        }
+        return result;
+    }
+
+    // Список упорядочен по времени просмотра, поэтому устаревшие записи всегда в голове
+    private void evictExpired(long now) {
+        if (maxAgeMillis == 0) {
+            return;
+        }
+        while (head != NONE && now - viewedAt[head] > maxAgeNanos) {
+            removeCell(head);
+        }
+    }
+
+    // ========== Ячейки ==========
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int cell = freeHead;
+            freeHead = next[cell];
+            return cell;
+        }
+        if (used == tasks.length) {
+            int capacity = used * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            tasks = Arrays.copyOf(tasks, capacity);
+            if (viewedAt != null) {
+                viewedAt = Arrays.copyOf(viewedAt, capacity);
+            }
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        return used++;
+    }
+
+    private void linkLast(int cell) {
+        prev[cell] = tail;
+        next[cell] = NONE;
+        if (tail == NONE) {
+            head = cell;
+        } else {
+            next[tail] = cell;
+        }
+        tail = cell;
+        size++;
+    }
+
+    private void unlink(int cell) {
+        int before = prev[cell];
+        int after = next[cell];
+        if (before == NONE) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NONE) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+        size--;
+    }
+
+    private void removeCell(int cell) {
+        unlink(cell);
+        delete(ids[cell]);
+        tasks[cell] = null;
+        next[cell] = freeHead;
+        freeHead = cell;
+    }
+
+    // ========== Таблица id -> ячейка ==========
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int find(int id) {
+        for (int i = hash(id) & mask; cells[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return cells[i] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    // Таблица заполнена не больше чем на три четверти
+    private void put(int id, int cell) {
+        if (size + 1 > threshold) {
+            rehash(keys.length * 2);
+        }
+        int i = hash(id) & mask;
+        while (cells[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        cells[i] = cell + 1;
+    }
+
+    // Удаление сдвигает назад записи, которые без этой ячейки стали бы недостижимы
+    private void delete(int id) {
+        int hole = hash(id) & mask;
+        while (keys[hole] != id || cells[hole] == 0) {
+            hole = (hole + 1) & mask;
+        }
+        for (int i = (hole + 1) & mask; cells[i] != 0; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                cells[hole] = cells[i];
+                hole = i;
+            }
+        }
+        cells[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCells = cells;
+        keys = new int[capacity];
+        cells = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCells[i] != 0) {
+                int j = hash(oldKeys[i]) & mask;
+                while (cells[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                cells[j] = oldCells[i];
+            }
+        }
+    }
+}
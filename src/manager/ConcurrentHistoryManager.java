@@ -0,0 +1,147 @@
+package manager;
+
+import interfaces.HistoryManager;
+import model.Task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Потокобезопасная история просмотров. Просмотр только записывается в буфер своей полосы
+// (полоса выбирается по потоку), а упорядоченный список обновляется пачками под одной блокировкой -
+// как буферы чтения в кэшах с LRU-порядком. Порядок между полосами восстанавливается по номеру события.
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_CAPACITY = 32;
+
+    private final HistoryManager history;
+    private final ViewBuffer[] buffers;
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // Рабочие массивы слияния, используются только под drainLock
+    private final long[][] drainedTickets;
+    private final Task[][] drainedTasks;
+    private final int[] drainedCounts;
+    private final int[] drainedPositions;
+
+    public ConcurrentHistoryManager() {
+        this(new InMemoryHistoryManager(), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ConcurrentHistoryManager(HistoryManager history, int concurrencyLevel) {
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        this.history = history;
+        this.buffers = new ViewBuffer[size];
+        for (int i = 0; i < size; i++) {
+            buffers[i] = new ViewBuffer();
+        }
+        this.drainedTickets = new long[size][BUFFER_CAPACITY];
+        this.drainedTasks = new Task[size][BUFFER_CAPACITY];
+        this.drainedCounts = new int[size];
+        this.drainedPositions = new int[size];
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        ViewBuffer buffer = buffers[(int) Thread.currentThread().getId() & (buffers.length - 1)];
+        while (!buffer.offer(task, clock)) {
+            // Буфер полон: просмотры нельзя терять, поэтому сами переносим их в список
+            drainLock.lock();
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drain();
+            history.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory(limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Забирает содержимое всех буферов и применяет просмотры в порядке их номеров
+    private void drain() {
+        int total = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            drainedCounts[i] = buffers[i].moveTo(drainedTickets[i], drainedTasks[i]);
+            drainedPositions[i] = 0;
+            total += drainedCounts[i];
+        }
+
+        // Внутри полосы номера возрастают, так что достаточно слияния отсортированных последовательностей
+        for (int n = 0; n < total; n++) {
+            int best = -1;
+            for (int i = 0; i < buffers.length; i++) {
+                if (drainedPositions[i] < drainedCounts[i]
+                        && (best < 0 || drainedTickets[i][drainedPositions[i]]
+                        < drainedTickets[best][drainedPositions[best]])) {
+                    best = i;
+                }
+            }
+            int position = drainedPositions[best]++;
+            history.add(drainedTasks[best][position]);
+            drainedTasks[best][position] = null;
+        }
+    }
+
+    private static final class ViewBuffer {
+        private final long[] tickets = new long[BUFFER_CAPACITY];
+        private final Task[] tasks = new Task[BUFFER_CAPACITY];
+        private int count;
+
+        // Номер берётся под монитором полосы, поэтому внутри буфера номера упорядочены
+        synchronized boolean offer(Task task, AtomicLong clock) {
+            if (count == BUFFER_CAPACITY) {
+                return false;
+            }
+            tickets[count] = clock.getAndIncrement();
+            tasks[count] = task;
+            count++;
+            return true;
+        }
+
+        synchronized int moveTo(long[] targetTickets, Task[] targetTasks) {
+            int moved = count;
+            System.arraycopy(tickets, 0, targetTickets, 0, moved);
+            System.arraycopy(tasks, 0, targetTasks, 0, moved);
+            Arrays.fill(tasks, 0, moved, null);
+            count = 0;
+            return moved;
+        }
+    }
+}
@@ -0,0 +1,732 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import interfaces.HistoryManager;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Потокобезопасный менеджер: чтение без блокировок, id выдаёт атомарный счётчик,
+// а изменения подзадач сериализуются только с изменениями своего эпика через полосатые блокировки.
+// Хранилища упорядочены по id, поэтому обход идёт по возрастанию без сортировки.
+// Опубликованный в хранилище эпик больше не меняется: читатель без блокировки может обходить его состав,
+// а изменение под блокировкой эпика собирает копию и подменяет ею прежний экземпляр. Копия делит
+// с прежним экземпляром куски состава (IntArraySet) и копирует только изменённый кусок и оглавление,
+// поэтому изменение подзадачи не копирует весь состав эпика.
+public class ConcurrentTaskManager implements TaskManager {
+    private final ConcurrentSkipListMap<Integer, Task> tasks = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Epic> epics = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Subtask> subtasks = new ConcurrentSkipListMap<>();
+    // Что учтено в счётчиках эпиков для каждой подзадачи; меняется под блокировкой эпика
+    private final Map<Integer, SubtaskLink> subtaskLinks = new ConcurrentHashMap<>();
+    private final StatusIndex statusIndex = new StatusIndex();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ReentrantLock[] stripes;
+    private final HistoryManager history;
+    // Пул для названий и описаний или null, если повторы не убираются
+    private final StringPool strings;
+    // Открытый пакет изменений; читается и меняется только под блокировками, а пакет держит их все
+    private Batch batch;
+
+    public ConcurrentTaskManager() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ConcurrentTaskManager(int concurrencyLevel) {
+        this(concurrencyLevel, Managers.getConcurrentHistory());
+    }
+
+    // История должна быть потокобезопасной, например ConcurrentHistoryManager
+    public ConcurrentTaskManager(int concurrencyLevel, HistoryManager history) {
+        this(concurrencyLevel, history, null);
+    }
+
+    // Названия и описания сохраняемых задач заменяются экземплярами из пула strings
+    public ConcurrentTaskManager(int concurrencyLevel, HistoryManager history, StringPool strings) {
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.history = history;
+        this.strings = strings;
+    }
+
+    private int getNextId() {
+        return nextId.getAndIncrement();
+    }
+
+    // Пул потокобезопасен, поэтому вызывается до захвата блокировки
+    private void deduplicate(Task task) {
+        if (strings != null) {
+            task.setName(strings.intern(task.getName()));
+            task.setDescription(strings.intern(task.getDescription()));
+        }
+    }
+
+    // ========== Блокировки ==========
+
+    private int stripeIndex(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    // Две полосы берутся в порядке индексов, чтобы не было взаимной блокировки
+    private void lockBoth(int firstId, int secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlockBoth(int firstId, int secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // ========== История ==========
+
+    private void recordView(Map<Integer, ? extends Task> store, Task task) {
+        if (task == null) {
+            return;
+        }
+        history.add(task);
+        // Задачу могли удалить между чтением и записью в историю; id не переиспользуются
+        if (!store.containsKey(task.getId())) {
+            forget(task.getId());
+        }
+    }
+
+    private void forget(int id) {
+        history.remove(id);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return history.getHistory(limit);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        List<Task> allTasks = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        allTasks.addAll(tasks.values());
+        allTasks.addAll(epics.values());
+        allTasks.addAll(subtasks.values());
+        return allTasks;
+    }
+
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        return TaskCursor.stream(querySource(), query);
+    }
+
+    @Override
+    public TaskPage queryTasks(TaskQuery query) {
+        return TaskCursor.page(querySource(), query);
+    }
+
+    // Обход хвостов упорядоченных хранилищ без блокировок; состав эпика читается под его блокировкой
+    private TaskCursor.Source querySource() {
+        return new TaskCursor.Source() {
+            @Override
+            public Iterator<? extends Task> from(TaskType type, Status status, int fromId) {
+                if (status != null) {
+                    Map<Integer, ? extends Task> store = type == TaskType.EPIC ? epics
+                            : type == TaskType.SUBTASK ? subtasks : tasks;
+                    return TaskCursor.ids(from -> statusIndex.nextId(type, status, from), store::get, fromId);
+                }
+                switch (type) {
+                    case EPIC:
+                        return epics.tailMap(fromId, true).values().iterator();
+                    case SUBTASK:
+                        return subtasks.tailMap(fromId, true).values().iterator();
+                    default:
+                        return tasks.tailMap(fromId, true).values().iterator();
+                }
+            }
+
+            @Override
+            public Iterator<? extends Task> subtasksOf(int epicId, int fromId) {
+                return TaskCursor.ids(from -> nextSubtaskId(epicId, from), subtasks::get, fromId);
+            }
+        };
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return statusIndex.count(type, status);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, Status status) {
+        return streamTasks(TaskQuery.all().ofType(type).withStatus(status)).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        int[] ids = searchIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = epics.get(id);
+            }
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private int nextSubtaskId(int epicId, int fromId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            return epic == null ? 0 : epic.nextSubtaskId(fromId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== Пакетные изменения ==========
+
+    // Пакет держит все полосы, так что изменения из других потоков в него не вклиниваются;
+    // читатели без блокировок могут увидеть промежуточное состояние. Для отката запоминаются исходные
+    // значения только тех ключей, которые пакет трогал. Выданные id при откате не возвращаются
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        lockAll();
+        try {
+            if (batch != null) {
+                mutations.accept(this);
+                return;
+            }
+            batch = new Batch();
+            Batch finished = batch;
+            try {
+                mutations.accept(this);
+            } catch (RuntimeException | Error e) {
+                batch = null;
+                rollback(finished);
+                throw e;
+            }
+            batch = null;
+            for (int epicId : finished.dirtyEpics) {
+                Epic epic = epics.get(epicId);
+                if (epic != null) {
+                    Epic updated = copyOf(epic);
+                    refreshStatus(updated);
+                    epics.put(epicId, updated);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        batch(manager -> {
+            for (Subtask subtask : subtasks) {
+                manager.createSubtask(subtask);
+            }
+        });
+    }
+
+    // Запоминает исходное значение ключа перед первым изменением внутри пакета
+    private static <V> void remember(Map<Integer, V> originals, Map<Integer, V> store, int id) {
+        if (!originals.containsKey(id)) {
+            originals.put(id, store.get(id));
+        }
+    }
+
+    private void rememberTask(int id) {
+        if (batch != null) {
+            remember(batch.tasks, tasks, id);
+        }
+    }
+
+    private void rememberEpic(int id) {
+        if (batch != null) {
+            remember(batch.epics, epics, id);
+        }
+    }
+
+    private void rememberSubtask(int id) {
+        if (batch != null) {
+            remember(batch.subtasks, subtasks, id);
+        }
+    }
+
+    private static <V> void restore(Map<Integer, V> originals, Map<Integer, V> store) {
+        for (Map.Entry<Integer, V> original : originals.entrySet()) {
+            if (original.getValue() == null) {
+                store.remove(original.getKey());
+            } else {
+                store.put(original.getKey(), original.getValue());
+            }
+        }
+    }
+
+    // Вызывается под всеми блокировками
+    private void rollback(Batch rolledBack) {
+        restore(rolledBack.tasks, tasks);
+        restore(rolledBack.epics, epics);
+        restore(rolledBack.subtasks, subtasks);
+
+        subtaskLinks.clear();
+        for (Subtask subtask : subtasks.values()) {
+            subtaskLinks.put(subtask.getId(), new SubtaskLink(subtask.getEpicId(), subtask.getStatus()));
+        }
+        for (TaskType type : TaskType.values()) {
+            statusIndex.clear(type);
+        }
+        tasks.values().forEach(task -> statusIndex.put(TaskType.TASK, task.getId(), task.getStatus()));
+        epics.values().forEach(epic -> statusIndex.put(TaskType.EPIC, epic.getId(), epic.getStatus()));
+        subtasks.values().forEach(subtask -> statusIndex.put(TaskType.SUBTASK, subtask.getId(), subtask.getStatus()));
+        searchIndex.rebuild(tasks.values(), epics.values(), subtasks.values());
+
+        for (Task viewed : history.getHistory()) {
+            if (tasks.get(viewed.getId()) == null && epics.get(viewed.getId()) == null
+                    && subtasks.get(viewed.getId()) == null) {
+                forget(viewed.getId());
+            }
+        }
+    }
+
+    // Исходные значения изменённых ключей (null - ключа не было) и эпики к пересчёту.
+    // Эпики меняются только подменой экземпляра, поэтому исходного экземпляра хватает для отката
+    private static final class Batch {
+        private final Map<Integer, Task> tasks = new HashMap<>();
+        private final Map<Integer, Epic> epics = new HashMap<>();
+        private final Map<Integer, Subtask> subtasks = new HashMap<>();
+        private final Set<Integer> dirtyEpics = new LinkedHashSet<>();
+    }
+
+    // ========== Методы для простых задач ==========
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return new HashMap<>(tasks);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        lockAll();
+        try {
+            for (Integer id : tasks.keySet()) {
+                rememberTask(id);
+                searchIndex.remove(id);
+            }
+            tasks.clear();
+            statusIndex.clear(TaskType.TASK);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = tasks.get(id);
+        recordView(tasks, task);
+        return task;
+    }
+
+    @Override
+    public void createTask(Task task) {
+        deduplicate(task);
+        task.setId(getNextId());
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            rememberTask(task.getId());
+            tasks.put(task.getId(), task);
+            statusIndex.put(TaskType.TASK, task.getId(), task.getStatus());
+            searchIndex.put(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Изменения одной задачи сериализуются на её полосе, чтобы индекс не разошёлся с хранилищем
+    @Override
+    public void updateTask(Task task) {
+        deduplicate(task);
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            rememberTask(task.getId());
+            if (tasks.replace(task.getId(), task) != null) {
+                statusIndex.put(TaskType.TASK, task.getId(), task.getStatus());
+                searchIndex.put(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            rememberTask(id);
+            if (tasks.remove(id) != null) {
+                statusIndex.remove(TaskType.TASK, id);
+                searchIndex.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        forget(id);
+    }
+
+    // ========== Методы для эпиков ==========
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return new HashMap<>(epics);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lockAll();
+        try {
+            for (Integer id : epics.keySet()) {
+                rememberEpic(id);
+                searchIndex.remove(id);
+            }
+            for (Integer id : subtasks.keySet()) {
+                rememberSubtask(id);
+                searchIndex.remove(id);
+            }
+            epics.clear();
+            subtasks.clear();
+            subtaskLinks.clear();
+            statusIndex.clear(TaskType.EPIC);
+            statusIndex.clear(TaskType.SUBTASK);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = epics.get(id);
+        recordView(epics, epic);
+        return epic;
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        deduplicate(epic);
+        epic.setId(getNextId());
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            rememberEpic(epic.getId());
+            epics.put(epic.getId(), epic);
+            statusIndex.put(TaskType.EPIC, epic.getId(), epic.getStatus());
+            searchIndex.put(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        deduplicate(epic);
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            Epic existingEpic = epics.get(epic.getId());
+            if (existingEpic != null) {
+                epic.copySubtasksFrom(existingEpic);
+                refreshStatus(epic);
+                rememberEpic(epic.getId());
+                epics.put(epic.getId(), epic);
+                searchIndex.put(epic);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return Collections.emptyList();
+            }
+
+            List<Subtask> result = new ArrayList<>(epic.getSubtaskCount());
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                Subtask subtask = subtasks.get(epic.getSubtaskId(i));
+                if (subtask != null) {
+                    result.add(subtask);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            rememberEpic(id);
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                    int subtaskId = epic.getSubtaskId(i);
+                    rememberSubtask(subtaskId);
+                    subtasks.remove(subtaskId);
+                    subtaskLinks.remove(subtaskId);
+                    statusIndex.remove(TaskType.SUBTASK, subtaskId);
+                    searchIndex.remove(subtaskId);
+                    forget(subtaskId);
+                }
+                statusIndex.remove(TaskType.EPIC, id);
+                searchIndex.remove(id);
+                forget(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== Методы для подзадач ==========
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return new HashMap<>(subtasks);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lockAll();
+        try {
+            for (Epic epic : epics.values()) {
+                Epic cleared = new Epic(epic.getName(), epic.getDescription());
+                cleared.setId(epic.getId());
+                publish(cleared);
+            }
+            for (Integer id : subtasks.keySet()) {
+                rememberSubtask(id);
+                searchIndex.remove(id);
+            }
+            subtasks.clear();
+            subtaskLinks.clear();
+            statusIndex.clear(TaskType.SUBTASK);
+            statusIndex.moveAll(TaskType.EPIC, Status.NEW);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        Subtask subtask = subtasks.get(id);
+        recordView(subtasks, subtask);
+        return subtask;
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        deduplicate(subtask);
+        ReentrantLock lock = lockFor(subtask.getEpicId());
+        lock.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                return;
+            }
+            subtask.setId(getNextId());
+            rememberSubtask(subtask.getId());
+            subtasks.put(subtask.getId(), subtask);
+            statusIndex.put(TaskType.SUBTASK, subtask.getId(), subtask.getStatus());
+            searchIndex.put(subtask);
+            Epic updated = copyOf(epic);
+            link(updated, subtask);
+            refreshStatus(updated);
+            publish(updated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        deduplicate(subtask);
+        int id = subtask.getId();
+        int epicId = subtask.getEpicId();
+        while (true) {
+            SubtaskLink link = subtaskLinks.get(id);
+            if (link == null) {
+                return;
+            }
+
+            lockBoth(link.epicId, epicId);
+            try {
+                // Подзадачу успели перенести или удалить - повторяем с новыми данными
+                if (subtaskLinks.get(id) != link) {
+                    continue;
+                }
+                Epic epic = epics.get(epicId);
+                if (epic == null) {
+                    return;
+                }
+
+                Epic updated = copyOf(epic);
+                Epic previousEpic = link.epicId == epicId ? updated : copyOf(epics.get(link.epicId));
+                unlink(id, previousEpic);
+                rememberSubtask(id);
+                subtasks.put(id, subtask);
+                statusIndex.put(TaskType.SUBTASK, id, subtask.getStatus());
+                searchIndex.put(subtask);
+                link(updated, subtask);
+
+                if (previousEpic != null && previousEpic != updated) {
+                    refreshStatus(previousEpic);
+                    publish(previousEpic);
+                }
+                refreshStatus(updated);
+                publish(updated);
+                return;
+            } finally {
+                unlockBoth(link.epicId, epicId);
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        while (true) {
+            SubtaskLink link = subtaskLinks.get(id);
+            if (link == null) {
+                return;
+            }
+
+            ReentrantLock lock = lockFor(link.epicId);
+            lock.lock();
+            try {
+                if (subtaskLinks.get(id) != link) {
+                    continue;
+                }
+                rememberSubtask(id);
+                subtasks.remove(id);
+                statusIndex.remove(TaskType.SUBTASK, id);
+                searchIndex.remove(id);
+                Epic updated = copyOf(epics.get(link.epicId));
+                unlink(id, updated);
+                if (updated != null) {
+                    refreshStatus(updated);
+                    publish(updated);
+                }
+                forget(id);
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Вызывается под блокировкой эпика для ещё не опубликованного экземпляра;
+    // внутри пакета эпик только помечается к пересчёту
+    private void refreshStatus(Epic epic) {
+        if (batch != null) {
+            batch.dirtyEpics.add(epic.getId());
+            return;
+        }
+        epic.setStatus(epic.calculateStatus());
+        statusIndex.put(TaskType.EPIC, epic.getId(), epic.getStatus());
+    }
+
+    // Неопубликованная копия эпика для изменения, null для null; состав копируется по кускам
+    private static Epic copyOf(Epic epic) {
+        if (epic == null) {
+            return null;
+        }
+        Epic copy = new Epic(epic.getName(), epic.getDescription());
+        copy.setId(epic.getId());
+        copy.setStatus(epic.getStatus());
+        copy.copySubtasksFrom(epic);
+        return copy;
+    }
+
+    // Подменяет эпик изменённой копией; вызывается под блокировкой эпика
+    private void publish(Epic epic) {
+        rememberEpic(epic.getId());
+        epics.put(epic.getId(), epic);
+    }
+
+    // epic - неопубликованная копия
+    private void link(Epic epic, Subtask subtask) {
+        epic.addSubtaskId(subtask.getId());
+        epic.countSubtaskStatus(subtask.getStatus(), 1);
+        subtaskLinks.put(subtask.getId(), new SubtaskLink(epic.getId(), subtask.getStatus()));
+    }
+
+    // epic - неопубликованная копия эпика подзадачи или null, если эпика уже нет
+    private void unlink(int subtaskId, Epic epic) {
+        SubtaskLink link = subtaskLinks.remove(subtaskId);
+        if (link != null && epic != null) {
+            epic.removeSubtaskId(subtaskId);
+            epic.countSubtaskStatus(link.status, -1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package manager;
+
+import enums.DurabilityMode;
+
+public class DurabilityPolicy {
+    private static final DurabilityPolicy SYNC = new DurabilityPolicy(DurabilityMode.SYNC, 1, 0, 0);
+    private static final DurabilityPolicy MANUAL = new DurabilityPolicy(DurabilityMode.MANUAL, 1, 0, 0);
+
+    private final DurabilityMode mode;
+    private final int maxMutations;
+    private final long maxDelayMillis;
+    private final int queueCapacity;
+
+    private DurabilityPolicy(DurabilityMode mode, int maxMutations, long maxDelayMillis, int queueCapacity) {
+        this.mode = mode;
+        this.maxMutations = maxMutations;
+        this.maxDelayMillis = maxDelayMillis;
+        this.queueCapacity = queueCapacity;
+    }
+
+    // Каждая мутация записывается на диск до возврата из метода
+    public static DurabilityPolicy synchronous() {
+        return SYNC;
+    }
+
+    // Изменения записываются только в flush() и close(); когда их вызывать, решает владелец менеджера
+    public static DurabilityPolicy manual() {
+        return MANUAL;
+    }
+
+    // Изменения записываются пачкой после maxMutations мутаций или спустя maxDelayMillis после первой
+    public static DurabilityPolicy groupCommit(int maxMutations, long maxDelayMillis) {
+        if (maxMutations < 1) {
+            throw new IllegalArgumentException("Размер группы должен быть положительным: " + maxMutations);
+        }
+        if (maxDelayMillis < 1) {
+            throw new IllegalArgumentException("Задержка должна быть положительной: " + maxDelayMillis);
+        }
+        return new DurabilityPolicy(DurabilityMode.GROUP_COMMIT, maxMutations, maxDelayMillis, 0);
+    }
+
+    // Изменения записываются фоновым потоком; если он отстал на queueCapacity мутаций, вызывающий ждёт
+    public static DurabilityPolicy async(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Ёмкость очереди должна быть положительной: " + queueCapacity);
+        }
+        return new DurabilityPolicy(DurabilityMode.ASYNC, 1, 0, queueCapacity);
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public int getMaxMutations() {
+        return maxMutations;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public String toString() {
+        return "DurabilityPolicy{" +
+                "mode=" + mode +
+                ", maxMutations=" + maxMutations +
+                ", maxDelayMillis=" + maxDelayMillis +
+                ", queueCapacity=" + queueCapacity +
+                '}';
+    }
+}
@@ -1,7 +1,11 @@
 package manager;
 
+import enums.DurabilityMode;
+import enums.SnapshotFormat;
 import enums.Status;
 import enums.TaskType;
+import interfaces.HistoryManager;
+import interfaces.TaskManager;
 import model.Epic;
 import model.Subtask;
 import model.Task;
@@ -10,16 +14,148 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+public class FileBackedTasksManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DEL";
+    private static final String CLEAR = "CLR";
+    private static final String VIEW = "VIEW";
+    private static final String HISTORY = "HISTORY";
+    // Лог просмотров переписывается одной строкой истории, когда становится заметно длиннее неё
+    private static final int MIN_VIEW_LOG_RECORDS = 1024;
 
-public class FileBackedTasksManager extends InMemoryTaskManager {
     private final File file;
+    private final TaskJournal journal;
+    private final TaskJournal viewLog;
+    private final TaskCsvCodec codec = new TaskCsvCodec();
+    // 0 - режим снимка: каждая мутация перезаписывает файл целиком
+    private final int compactionThreshold;
+    private final DurabilityPolicy durability;
+    private final SnapshotFormat snapshotFormat;
+    private final BackgroundFlusher flusher;
+    private int viewLogLimit = MIN_VIEW_LOG_RECORDS;
+    // Есть изменения, ещё не попавшие на диск
+    private boolean dirty;
+    // Пакет изменений не попал в журнал, поэтому следующая запись - полный снимок
+    private boolean snapshotPending;
+    private boolean closed;
+    private final PersistenceMetrics metrics = new PersistenceMetrics();
 
     public FileBackedTasksManager(File file) {
+        this(file, 0);
+    }
+
+    // Режим журнала: мутации дописываются в <file>.journal, после compactionThreshold записей
+    // журнал сворачивается в новый снимок
+    public FileBackedTasksManager(File file, int compactionThreshold) {
+        this(file, compactionThreshold, DurabilityPolicy.synchronous());
+    }
+
+    public FileBackedTasksManager(File file, int compactionThreshold, DurabilityPolicy durability) {
+        this(file, compactionThreshold, durability, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTasksManager(File file, int compactionThreshold, DurabilityPolicy durability,
+                                  SnapshotFormat snapshotFormat) {
+        this(file, compactionThreshold, durability, snapshotFormat, Managers.getDefaultHistory());
+    }
+
+    // history - например, история с ограничением возраста: время просмотров сохраняется в логе просмотров
+    public FileBackedTasksManager(File file, int compactionThreshold, DurabilityPolicy durability,
+                                  SnapshotFormat snapshotFormat, HistoryManager history) {
+        this(file, compactionThreshold, durability, snapshotFormat, history, null);
+    }
+
+    // strings - пул для названий и описаний, в том числе прочитанных из снимка и журнала
+    public FileBackedTasksManager(File file, int compactionThreshold, DurabilityPolicy durability,
+                                  SnapshotFormat snapshotFormat, HistoryManager history, StringPool strings) {
+        super(history, strings);
+        if (compactionThreshold < 0) {
+            throw new IllegalArgumentException("Порог компактизации не может быть отрицательным: " + compactionThreshold);
+        }
         this.file = file;
+        this.journal = new TaskJournal(new File(file.getPath() + ".journal"), metrics::addBytesWritten);
+        this.viewLog = new TaskJournal(new File(file.getPath() + ".history"), metrics::addBytesWritten);
+        this.compactionThreshold = compactionThreshold;
+        this.durability = durability;
+        this.snapshotFormat = snapshotFormat;
+        this.flusher = durability.getMode() == DurabilityMode.SYNC || durability.getMode() == DurabilityMode.MANUAL
+                ? null
+                : new BackgroundFlusher(durability, this::writeDirtyState, "task-flusher-" + file.getName());
+    }
+
+    public boolean isJournaling() {
+        return compactionThreshold > 0;
+    }
+
+    public DurabilityPolicy getDurability() {
+        return durability;
     }
 
-    protected void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public PersistenceMetrics getPersistenceMetrics() {
+        return metrics;
+    }
+
+    // Ошибка последней фоновой записи или null. Мутации и чтения из-за неё не падают:
+    // фоновый поток повторяет запись, а flush() и close() пишут сами и бросают ошибку вызывающему
+    public RuntimeException getBackgroundFailure() {
+        return flusher == null ? null : flusher.getFailure();
+    }
+
+    protected synchronized void save() {
+        TaskSaveEvent event = new TaskSaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(tmp, tasks.values(), epics.values(), subtasks.values(), currentHistoryIds());
+        } else {
+            writeCsv(tmp);
+        }
+
+        long bytes = tmp.length();
+        TaskJournal.replaceFile(tmp, file);
+        metrics.addBytesWritten(bytes);
+        metrics.recordSave(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.format = snapshotFormat.name();
+            event.taskCount = tasks.size() + epics.size() + subtasks.size();
+            event.bytes = bytes;
+            event.commit();
+        }
+
+        // Снимок уже содержит все изменения из журнала и лога просмотров. Времени просмотров
+        // в снимке нет, поэтому история с ограничением возраста остаётся в логе со временем
+        if (journal.size() > 0 || journal.getFile().exists()) {
+            journal.reset();
+        }
+        if (history.getMaxAgeMillis() > 0 && !super.getHistory().isEmpty()) {
+            rewriteViewLog();
+        } else if (viewLog.size() > 0 || viewLog.getFile().exists()) {
+            viewLog.reset();
+        }
+        dirty = false;
+        snapshotPending = false;
+    }
+
+    // Выгружает текущее состояние в CSV независимо от формата снимка
+    public synchronized void exportToCsv(File target) {
+        File tmp = new File(target.getPath() + ".tmp");
+        writeCsv(tmp);
+        TaskJournal.replaceFile(tmp, target);
+    }
+
+    private void writeCsv(File target) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(target, StandardCharsets.UTF_8))) {
             writer.write("id,type,name,status,description,epic");
             writer.newLine();
 
@@ -34,90 +170,85 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         }
     }
 
+    // Записывает на диск всё, что накопилось с прошлой записи. Журнал и снимок сбрасываются
+    // на устройство, просмотры только передаются ОС - их сбрасывает flush()
+    private synchronized void writeDirtyState() {
+        if (snapshotPending) {
+            save();
+        } else if (isJournaling()) {
+            journal.sync();
+            compactIfNeeded();
+        } else if (dirty) {
+            save();
+        }
+        viewLog.flush();
+        dirty = false;
+    }
+
+    // Гарантирует, что все выполненные до вызова изменения и просмотры сброшены на диск.
+    // Успешная запись снимает ошибку прошлых фоновых записей: всё, что они не записали, записано сейчас;
+    // неудачная бросает ManagerSaveException, а фоновый поток продолжает повторять запись
+    public void flush() {
+        synchronized (this) {
+            writeDirtyState();
+            viewLog.sync();
+            if (flusher != null) {
+                flusher.clearFailure();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            if (flusher != null) {
+                flusher.close();
+            }
+        } finally {
+            writeDirtyState();
+            viewLog.sync();
+            journal.close();
+            viewLog.close();
+        }
+    }
+
     private void saveTasks(BufferedWriter writer) throws IOException {
         for (Task task : super.getTasks().values()) {
-            writer.write(taskToString(task));
+            codec.write(writer, task);
             writer.newLine();
         }
 
         for (Epic epic : super.getEpics().values()) {
-            writer.write(taskToString(epic));
+            codec.write(writer, epic);
             writer.newLine();
         }
 
         for (Subtask subtask : super.getSubtasks().values()) {
-            writer.write(taskToString(subtask));
+            codec.write(writer, subtask);
             writer.newLine();
         }
     }
 
     private void saveHistory(BufferedWriter writer) throws IOException {
-        List<Task> history = super.getHistory();
-        if (!history.isEmpty()) {
-            List<Integer> historyIds = new ArrayList<>();
-            for (Task task : history) {
-                historyIds.add(task.getId());
-            }
+        List<Integer> historyIds = currentHistoryIds();
+        if (!historyIds.isEmpty()) {
             writer.write(historyToString(historyIds));
         }
     }
 
-    private String taskToString(Task task) {
-        if (task instanceof Epic) {
-            return String.format("%d,%s,%s,%s,%s,",
-                    task.getId(),
-                    TaskType.EPIC,
-                    task.getName(),
-                    task.getStatus(),
-                    task.getDescription());
-        } else if (task instanceof Subtask) {
-            Subtask subtask = (Subtask) task;
-            return String.format("%d,%s,%s,%s,%s,%d",
-                    task.getId(),
-                    TaskType.SUBTASK,
-                    task.getName(),
-                    task.getStatus(),
-                    task.getDescription(),
-                    subtask.getEpicId());
-        } else {
-            return String.format("%d,%s,%s,%s,%s,",
-                    task.getId(),
-                    TaskType.TASK,
-                    task.getName(),
-                    task.getStatus(),
-                    task.getDescription());
-        }
-    }
-
-    private static Task taskFromString(String value) {
-        String[] parts = value.split(",");
-        int id = Integer.parseInt(parts[0]);
-        TaskType type = TaskType.valueOf(parts[1]);
-        String name = parts[2];
-        Status status = Status.valueOf(parts[3]);
-        String description = parts[4];
-
-        switch (type) {
-            case TASK:
-                Task task = new Task(name, description, status);
-                task.setId(id);
-                return task;
-
-            case EPIC:
-                Epic epic = new Epic(name, description);
-                epic.setId(id);
-                epic.setStatus(status);
-                return epic;
-
-            case SUBTASK:
-                int epicId = Integer.parseInt(parts[5]);
-                Subtask subtask = new Subtask(name, description, status, epicId);
-                subtask.setId(id);
-                return subtask;
-
-            default:
-                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+    private List<Integer> currentHistoryIds() {
+        List<Task> history = super.getHistory();
+        List<Integer> historyIds = new ArrayList<>(history.size());
+        for (Task task : history) {
+            historyIds.add(task.getId());
         }
+        return historyIds;
     }
 
     private static String historyToString(List<Integer> historyIds) {
@@ -131,7 +262,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
         return sb.toString();
     }
 
-    private static List<Integer> historyFromString(String value) {
+    static List<Integer> historyFromString(String value) {
         List<Integer> historyIds = new ArrayList<>();
         if (value == null || value.isBlank()) {
             return historyIds;
@@ -145,52 +276,156 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
     }
 
     public static FileBackedTasksManager loadFromFile(File file) {
-        FileBackedTasksManager manager = new FileBackedTasksManager(file);
+        return loadFromFile(file, 0);
+    }
+
+    public static FileBackedTasksManager loadFromFile(File file, int compactionThreshold) {
+        return loadFromFile(file, compactionThreshold, DurabilityPolicy.synchronous());
+    }
+
+    // Формат снимка определяется по содержимому файла, дальше менеджер сохраняет в нём же
+    public static FileBackedTasksManager loadFromFile(File file, int compactionThreshold, DurabilityPolicy durability) {
+        SnapshotFormat format = file.exists() && BinarySnapshot.isBinary(file)
+                ? SnapshotFormat.BINARY
+                : SnapshotFormat.CSV;
+        return loadFromFile(file, compactionThreshold, durability, format);
+    }
+
+    // Позволяет прочитать снимок в одном формате и дальше сохранять в другом, например импортировать CSV
+    public static FileBackedTasksManager loadFromFile(File file, int compactionThreshold, DurabilityPolicy durability,
+                                                      SnapshotFormat snapshotFormat) {
+        return loadFromFile(file, compactionThreshold, durability, snapshotFormat, Managers.getDefaultHistory());
+    }
+
+    public static FileBackedTasksManager loadFromFile(File file, int compactionThreshold, DurabilityPolicy durability,
+                                                      SnapshotFormat snapshotFormat, HistoryManager history) {
+        return loadFromFile(file, compactionThreshold, durability, snapshotFormat, history, null);
+    }
+
+    // Повторяющиеся названия и описания загруженных задач хранятся один раз
+    public static FileBackedTasksManager loadFromFile(File file, int compactionThreshold, DurabilityPolicy durability,
+                                                      SnapshotFormat snapshotFormat, HistoryManager history,
+                                                      StringPool strings) {
+        return load(file, compactionThreshold, durability, snapshotFormat, history, strings, null);
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
-            String line;
+    public static FileBackedTasksManager loadFromFileParallel(File file) {
+        return loadFromFileParallel(file, 0, DurabilityPolicy.synchronous(), ForkJoinPool.commonPool());
+    }
+
+    // CSV-снимок разбирается кусками на пуле pool, двоичный и так читается через отображение в память
+    public static FileBackedTasksManager loadFromFileParallel(File file, int compactionThreshold,
+                                                              DurabilityPolicy durability, ForkJoinPool pool) {
+        SnapshotFormat format = file.exists() && BinarySnapshot.isBinary(file)
+                ? SnapshotFormat.BINARY
+                : SnapshotFormat.CSV;
+        return load(file, compactionThreshold, durability, format, Managers.getDefaultHistory(), null, pool);
+    }
+
+    private static FileBackedTasksManager load(File file, int compactionThreshold, DurabilityPolicy durability,
+                                               SnapshotFormat snapshotFormat, HistoryManager history,
+                                               StringPool strings, ForkJoinPool pool) {
+        TaskLoadEvent event = new TaskLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        FileBackedTasksManager manager = new FileBackedTasksManager(file, compactionThreshold, durability,
+                snapshotFormat, history, strings);
+        List<Integer> historyIds = new ArrayList<>();
+
+        // В режиме журнала снимка может ещё не быть
+        boolean convert = false;
+        boolean merged = false;
+        if (file.exists() || !manager.journal.getFile().exists()) {
+            boolean binary = BinarySnapshot.isBinary(file);
+            convert = binary != (snapshotFormat == SnapshotFormat.BINARY);
+            if (pool != null && !binary) {
+                // Связи эпиков и nextId восстанавливаются при слиянии кусков
+                historyIds = ParallelTaskLoader.load(file, manager, pool);
+                merged = true;
+            } else {
+                historyIds = readSnapshot(manager, file);
+            }
+        }
+
+        // Восстанавливаем связи эпиков и подзадач
+        if (!merged) {
+            restoreEpicSubtaskRelations(manager);
+        }
+
+        // Применяем изменения, накопленные после снимка
+        int replayed = manager.journal.replay(manager::applyRecord);
+
+        // Восстанавливаем историю и досматриваем лог просмотров
+        restoreHistory(manager, historyIds);
+        manager.replayViewLog();
+
+        // Обновляем nextId
+        if (!merged || replayed > 0) {
+            updateNextId(manager);
+        }
+
+        // Загрузка пишет в хранилища напрямую, индексы строятся один раз по итогу
+        manager.rebuildIndexes();
+
+        // Без журнала сразу сворачиваем прочитанные записи в снимок,
+        // при смене формата сразу переписываем снимок в новом
+        if (convert || (replayed > 0 && !manager.isJournaling())) {
+            manager.save();
+        }
+
+        manager.metrics.recordLoad(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.format = snapshotFormat.name();
+            event.taskCount = manager.tasks.size() + manager.epics.size() + manager.subtasks.size();
+            event.journalRecords = replayed;
+            event.parallel = merged;
+            event.commit();
+        }
+        return manager;
+    }
+
+    private static List<Integer> readSnapshot(FileBackedTasksManager manager, File file) {
+        if (BinarySnapshot.isBinary(file)) {
+            return BinarySnapshot.read(file, task -> addTaskToManager(manager, task));
+        }
+
+        List<Integer> historyIds = new ArrayList<>();
+
+        try (Reader input = new FileReader(file, StandardCharsets.UTF_8)) {
+            CharLineReader reader = new CharLineReader(input);
+            TaskCsvCodec codec = new TaskCsvCodec();
             boolean readingHistory = false;
-            List<Integer> historyIds = new ArrayList<>();
 
             // Пропускаем заголовок
-            reader.readLine();
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
+            reader.next();
 
-                if (line.isEmpty()) {
+            while (reader.next()) {
+                if (reader.isEmpty()) {
                     readingHistory = true;
                     continue;
                 }
 
                 if (!readingHistory) {
                     // Читаем задачу
-                    Task task = taskFromString(line);
+                    Task task = codec.decode(reader.buffer(), reader.start(), reader.end());
                     addTaskToManager(manager, task);
                 } else {
                     // Читаем историю
-                    historyIds = historyFromString(line);
+                    historyIds = historyFromString(reader.line());
                     break;
                 }
             }
-
-            // Восстанавливаем связи эпиков и подзадач
-            restoreEpicSubtaskRelations(manager);
-
-            // Восстанавливаем историю
-            restoreHistory(manager, historyIds);
-
-            // Обновляем nextId
-            updateNextId(manager);
-
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка при загрузке из файла", e);
         }
 
-        return manager;
+        return historyIds;
     }
 
     private static void addTaskToManager(FileBackedTasksManager manager, Task task) {
+        manager.deduplicate(task);
         if (task instanceof Epic) {
             manager.epics.put(task.getId(), (Epic) task);
         } else if (task instanceof Subtask) {
@@ -211,130 +446,451 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
 
     private static void restoreEpicSubtaskRelations(FileBackedTasksManager manager) {
         for (Subtask subtask : manager.subtasks.values()) {
-            Epic epic = manager.epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.addSubtaskId(subtask.getId());
-            }
+            manager.linkSubtask(subtask);
         }
     }
 
     private static void updateNextId(FileBackedTasksManager manager) {
         int maxId = 0;
 
-        for (Task task : manager.getAllTasks()) {
-            if (task.getId() > maxId) {
-                maxId = task.getId();
-            }
+        for (Task task : manager.tasks.values()) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        for (Epic epic : manager.epics.values()) {
+            maxId = Math.max(maxId, epic.getId());
+        }
+        for (Subtask subtask : manager.subtasks.values()) {
+            maxId = Math.max(maxId, subtask.getId());
         }
 
         manager.nextId = maxId + 1;
     }
 
-    private Task findTaskById(int id) {
-        Task task = tasks.get(id);
-        if (task != null) return task;
+    // ========== Журнал изменений ==========
+
+    // Досматривает журнал поверх уже прочитанного снимка, возвращает число записей
+    int replayJournal() {
+        return journal.replay(this::applyRecord);
+    }
+
+    boolean hasJournal() {
+        return journal.getFile().length() > 0;
+    }
+
+    private void applyRecord(String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+
+        switch (operation) {
+            case PUT:
+                applyPut(codec.decode(record, comma + 1));
+                break;
+            case DELETE:
+                applyDelete(Integer.parseInt(record.substring(comma + 1)));
+                break;
+            case CLEAR:
+                applyClear(TaskType.valueOf(record.substring(comma + 1)));
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная запись журнала: " + record);
+        }
+    }
+
+    // Статус эпика приходит отдельной записью PUT, поэтому здесь он не пересчитывается
+    private void applyPut(Task task) {
+        deduplicate(task);
+        if (task instanceof Epic) {
+            Epic epic = (Epic) task;
+            Epic existingEpic = epics.get(epic.getId());
+            if (existingEpic != null) {
+                epic.copySubtasksFrom(existingEpic);
+            }
+            epics.put(epic.getId(), epic);
+        } else if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            unlinkSubtask(subtask.getId());
+            subtasks.put(subtask.getId(), subtask);
+            linkSubtask(subtask);
+        } else {
+            tasks.put(task.getId(), task);
+        }
+    }
 
-        task = epics.get(id);
-        if (task != null) return task;
+    private void applyDelete(int id) {
+        if (tasks.remove(id) != null) {
+            return;
+        }
 
-        return subtasks.get(id);
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            // С конца, потому что unlinkSubtask удаляет id из того же множества
+            for (int i = epic.getSubtaskCount() - 1; i >= 0; i--) {
+                int subtaskId = epic.getSubtaskId(i);
+                unlinkSubtask(subtaskId);
+                subtasks.remove(subtaskId);
+            }
+            epics.remove(id);
+            return;
+        }
+
+        if (subtasks.remove(id) != null) {
+            unlinkSubtask(id);
+        }
+    }
+
+    private void applyClear(TaskType type) {
+        switch (type) {
+            case TASK:
+                tasks.clear();
+                break;
+            case EPIC:
+                clearEpics();
+                break;
+            case SUBTASK:
+                clearSubtasks();
+                break;
+        }
+    }
+
+    // ========== Лог просмотров ==========
+
+    void replayViewLog() {
+        viewLog.replay(record -> applyViewRecord(history, this::findTaskById, record));
+    }
+
+    // VIEW,id[,время просмотра по часам системы] или HISTORY,id,id,... - вся история целиком.
+    // Просмотр со временем восстанавливается с ним, и устаревший по возрасту в историю не попадает
+    static void applyViewRecord(HistoryManager history, IntFunction<Task> lookup, String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+        String payload = record.substring(comma + 1);
+
+        switch (operation) {
+            case VIEW:
+                int timeComma = payload.indexOf(',');
+                int id = Integer.parseInt(timeComma < 0 ? payload : payload.substring(0, timeComma));
+                Task task = lookup.apply(id);
+                if (task == null) {
+                    break;
+                }
+                if (timeComma < 0) {
+                    history.add(task);
+                } else {
+                    history.restore(task, Long.parseLong(payload.substring(timeComma + 1)));
+                }
+                break;
+            case HISTORY:
+                for (Task viewed : history.getHistory()) {
+                    history.remove(viewed.getId());
+                }
+                for (int viewedId : historyFromString(payload)) {
+                    Task viewed = lookup.apply(viewedId);
+                    if (viewed != null) {
+                        history.add(viewed);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная запись лога просмотров: " + record);
+        }
+    }
+
+    static String viewRecord(Task task) {
+        return VIEW + "," + task.getId() + "," + System.currentTimeMillis();
+    }
+
+    // Содержимое лога просмотров, заменяющее его целиком: история одной строкой HISTORY,
+    // а если история ограничена по возрасту - пустая HISTORY и по строке VIEW со временем на запись
+    static String viewLogSnapshot(HistoryManager history, List<Task> viewed) {
+        if (history.getMaxAgeMillis() == 0) {
+            List<Integer> historyIds = new ArrayList<>(viewed.size());
+            for (Task task : viewed) {
+                historyIds.add(task.getId());
+            }
+            return HISTORY + "," + historyToString(historyIds);
+        }
+        StringBuilder records = new StringBuilder(HISTORY).append(',');
+        for (Task task : viewed) {
+            records.append(System.lineSeparator()).append(VIEW).append(',').append(task.getId())
+                    .append(',').append(history.getViewedAtMillis(task.getId()));
+        }
+        return records.toString();
+    }
+
+    private void rewriteViewLog() {
+        List<Task> viewed = super.getHistory();
+        viewLog.rewrite(viewLogSnapshot(history, viewed));
+        viewLogLimit = Math.max(MIN_VIEW_LOG_RECORDS, 2 * viewed.size());
+    }
+
+    // Просмотр стоит одной строки в логе вместо перезаписи снимка
+    private void logView(Task task) {
+        if (task == null) {
+            return;
+        }
+
+        viewLog.append(viewRecord(task));
+        if (viewLog.size() >= viewLogLimit) {
+            rewriteViewLog();
+        } else if (flusher != null) {
+            flusher.touch();
+        } else if (durability.getMode() == DurabilityMode.SYNC) {
+            viewLog.flush();
+        }
+    }
+
+    // Фиксирует новое состояние перечисленных задач
+    private void logPut(int... ids) {
+        if (isInBatch()) {
+            return;
+        }
+        if (isJournaling()) {
+            appendPuts(ids);
+        }
+        commit();
+    }
+
+    // Фиксирует удаление задачи и новое состояние затронутых задач
+    private void logDelete(int id, int... changedIds) {
+        if (isInBatch()) {
+            return;
+        }
+        if (isJournaling()) {
+            journal.append(DELETE + "," + id);
+            appendPuts(changedIds);
+        }
+        commit();
+    }
+
+    private void logClear(TaskType type) {
+        if (isInBatch()) {
+            return;
+        }
+        if (isJournaling()) {
+            journal.append(CLEAR + "," + type);
+        }
+        commit();
+    }
+
+    private void appendPuts(int... ids) {
+        for (int id : ids) {
+            Task task = findTaskById(id);
+            if (task != null) {
+                journal.append(codec.buffer(), codec.encode(PUT + ",", task));
+            }
+        }
+    }
+
+    // Синхронный режим пишет сразу, фоновые оставляют запись своему потоку, MANUAL - вызову flush()
+    private void commit() {
+        dirty = true;
+        if (durability.getMode() == DurabilityMode.SYNC) {
+            writeDirtyState();
+        }
+    }
+
+    // Вызывается вне блокировки менеджера: в режиме ASYNC здесь работает обратное давление,
+    // и ожидание места в очереди не должно мешать фоновому потоку взять блокировку.
+    // Внутри пакета монитор ещё занят, ждать будет пакет целиком
+    private void awaitFlusher() {
+        if (flusher != null && !Thread.holdsLock(this)) {
+            flusher.submit();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Менеджер закрыт: " + file);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journal.size() >= compactionThreshold) {
+            save();
+        }
+    }
+
+    // Изменения пакета не пишутся по одному: после успешного пакета файл перезаписывается один раз,
+    // после отката писать нечего
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        synchronized (this) {
+            checkOpen();
+            boolean outermost = !isInBatch();
+            super.batch(mutations);
+            if (outermost) {
+                snapshotPending = true;
+                commit();
+            }
+        }
+        awaitFlusher();
     }
 
     // Переопределяем все методы, изменяющие состояние
 
     @Override
     public void createTask(Task task) {
-        super.createTask(task);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.createTask(task);
+            logPut(task.getId());
+        }
+        awaitFlusher();
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.updateTask(task);
+            logPut(task.getId());
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteTaskById(int id) {
-        super.deleteTaskById(id);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.deleteTaskById(id);
+            logDelete(id);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.deleteAllTasks();
+            logClear(TaskType.TASK);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void createEpic(Epic epic) {
-        super.createEpic(epic);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.createEpic(epic);
+            logPut(epic.getId());
+        }
+        awaitFlusher();
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.updateEpic(epic);
+            logPut(epic.getId());
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteEpicById(int id) {
-        super.deleteEpicById(id);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.deleteEpicById(id);
+            logDelete(id);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.deleteAllEpics();
+            logClear(TaskType.EPIC);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void createSubtask(Subtask subtask) {
-        super.createSubtask(subtask);
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.createSubtask(subtask);
+            logPut(subtask.getId(), subtask.getEpicId());
+        }
+        awaitFlusher();
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        synchronized (this) {
+            checkOpen();
+            int previousEpicId = linkedEpicId(subtask.getId());
+            super.updateSubtask(subtask);
+            logPut(subtask.getId(), subtask.getEpicId(), previousEpicId);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteSubtaskById(int id) {
-        super.deleteSubtaskById(id);
-        save();
+        synchronized (this) {
+            checkOpen();
+            int epicId = linkedEpicId(id);
+            super.deleteSubtaskById(id);
+            logDelete(id, epicId);
+        }
+        awaitFlusher();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+        synchronized (this) {
+            checkOpen();
+            super.deleteAllSubtasks();
+            logClear(TaskType.SUBTASK);
+        }
+        awaitFlusher();
     }
 
     @Override
-    public Task getTaskById(int id) {
+    public synchronized Task getTaskById(int id) {
+        checkOpen();
         Task task = super.getTaskById(id);
-        save();
+        logView(task);
         return task;
     }
 
     @Override
-    public Epic getEpicById(int id) {
+    public synchronized Epic getEpicById(int id) {
+        checkOpen();
         Epic epic = super.getEpicById(id);
-        save();
+        logView(epic);
         return epic;
     }
 
     @Override
-    public Subtask getSubtaskById(int id) {
+    public synchronized Subtask getSubtaskById(int id) {
+        checkOpen();
         Subtask subtask = super.getSubtaskById(id);
-        save();
+        logView(subtask);
         return subtask;
     }
 
+    // История может вытеснять записи при чтении, а фоновый сброс читает её под тем же монитором
+    @Override
+    public synchronized List<Task> getHistory() {
+        return super.getHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getHistory(int limit) {
+        return super.getHistory(limit);
+    }
+
+    // Снимки хранилищ для запроса берутся под монитором, дальше обход идёт без блокировки
+    @Override
+    synchronized TaskCursor.Source querySource() {
+        return super.querySource();
+    }
+
     public static void main(String[] args) {
         System.out.println("=== Тестирование FileBackedTasksManager ===\n");
 
@@ -406,7 +962,7 @@ public class FileBackedTasksManager extends InMemoryTaskManager {
 
             for (Epic epic : manager2.getEpics().values()) {
                 System.out.println("Эпик: " + epic.getName() + ", статус: " + epic.getStatus() +
-                        ", подзадач: " + epic.getSubtaskIds().size());
+                        ", подзадач: " + epic.getSubtaskCount());
             }
 
             for (Subtask subtask : manager2.getSubtasks().values()) {
@@ -2,39 +2,124 @@ package manager;
 
 import interfaces.HistoryManager;
 import model.CustomLinkedList;
+import model.IntObjectMap;
 import model.Node;
 import model.Task;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class InMemoryHistoryManager implements HistoryManager {
     private final CustomLinkedList history = new CustomLinkedList();
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final IntObjectMap<Node> historyMap = new IntObjectMap<>();
+    // Ограничения истории, 0 - без ограничения
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final long maxAgeNanos;
 
+    public InMemoryHistoryManager() {
+        this(0, 0);
+    }
+
+    public InMemoryHistoryManager(int maxEntries, long maxAgeMillis) {
+        if (maxEntries < 0 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Ограничения истории не могут быть отрицательными: "
+                    + maxEntries + ", " + maxAgeMillis);
+        }
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    // Возраст считается по System.nanoTime(), который не зависит от перевода часов
     @Override
     public void add(Task task) {
         if (task == null) {
             return;
         }
+        long now = System.nanoTime();
+        link(task, now, now);
+    }
+
+    // Записи восстанавливаются по порядку просмотров, поэтому список остаётся упорядоченным по времени
+    @Override
+    public void restore(Task task, long viewedAtMillis) {
+        if (task == null) {
+            return;
+        }
+        long ageMillis = Math.max(0, System.currentTimeMillis() - viewedAtMillis);
+        if (maxAgeMillis > 0 && ageMillis > maxAgeMillis) {
+            remove(task.getId());
+            return;
+        }
+        long now = System.nanoTime();
+        link(task, now - TimeUnit.MILLISECONDS.toNanos(ageMillis), now);
+    }
+
+    @Override
+    public long getViewedAtMillis(int id) {
+        Node node = historyMap.get(id);
+        if (node == null) {
+            return 0;
+        }
+        return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - node.getViewedAt());
+    }
+
+    private void link(Task task, long viewedAt, long now) {
         remove(task.getId());
-        Node node = new Node(task);
+        Node node = new Node(task, viewedAt);
         history.linkLast(node);
         historyMap.put(task.getId(), node);
+
+        if (maxEntries > 0 && history.size() > maxEntries) {
+            removeHead();
+        }
+        evictExpired(now);
     }
 
     @Override
     public void remove(int id) {
-        Node node = historyMap.get(id);
+        Node node = historyMap.remove(id);
         if (node != null) {
             history.removeNode(node);
-            historyMap.remove(id);
         }
     }
 
     @Override
     public List<Task> getHistory() {
+        evictExpired(System.nanoTime());
         return history.getTasks();
     }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        evictExpired(System.nanoTime());
+        return history.getTasks(limit);
+    }
+
+    // Список упорядочен по времени просмотра, поэтому устаревшие записи всегда в голове
+    private void evictExpired(long now) {
+        if (maxAgeMillis == 0) {
+            return;
+        }
+        Node head;
+        while ((head = history.getHead()) != null && now - head.getViewedAt() > maxAgeNanos) {
+            removeHead();
+        }
+    }
+
+    private void removeHead() {
+        Node head = history.getHead();
+        historyMap.remove(head.getTask().getId());
+        history.removeNode(head);
+    }
 }
@@ -1,52 +1,272 @@
 package manager;
 
 import enums.Status;
+import enums.TaskType;
 import interfaces.HistoryManager;
 import interfaces.TaskManager;
 import model.Epic;
+import model.IntArraySet;
+import model.IntObjectMap;
+import model.PersistentIntMap;
 import model.Subtask;
 import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected Map<Integer, Task> tasks;
-    protected Map<Integer, Epic> epics;
-    protected Map<Integer, Subtask> subtasks;
+    // Хранилища со структурным разделением: геттеры отдают неизменяемые снимки за O(1)
+    protected PersistentIntMap<Task> tasks;
+    protected PersistentIntMap<Epic> epics;
+    protected PersistentIntMap<Subtask> subtasks;
     protected int nextId;
     protected HistoryManager history;
+    // Что учтено в счётчиках эпиков для каждой подзадачи
+    private final IntObjectMap<SubtaskLink> subtaskLinks;
+    // id задач по типу и статусу
+    protected final StatusIndex statusIndex = new StatusIndex();
+    // Полнотекстовый индекс по названию и описанию
+    protected final SearchIndex searchIndex = new SearchIndex();
+    // Открытый пакет изменений или null
+    private Batch batch;
+    // Пул для названий и описаний или null, если повторы не убираются
+    private final StringPool strings;
 
     public InMemoryTaskManager() {
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subtasks = new HashMap<>();
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager history) {
+        this(history, null);
+    }
+
+    // Названия и описания сохраняемых задач заменяются экземплярами из пула strings
+    public InMemoryTaskManager(HistoryManager history, StringPool strings) {
+        this.strings = strings;
+        this.tasks = new PersistentIntMap<>();
+        this.epics = new PersistentIntMap<>();
+        this.subtasks = new PersistentIntMap<>();
+        this.subtaskLinks = new IntObjectMap<>();
         this.nextId = 1;
-        this.history = Managers.getDefaultHistory();
+        this.history = history;
     }
 
     private int getNextId() {
         return nextId++;
     }
 
+    protected void deduplicate(Task task) {
+        if (strings != null) {
+            task.setName(strings.intern(task.getName()));
+            task.setDescription(strings.intern(task.getDescription()));
+        }
+    }
+
     @Override
     public List<Task> getAllTasks() {
-        List<Task> allTasks = new ArrayList<>();
-        allTasks.addAll(tasks.values());
-        allTasks.addAll(epics.values());
-        allTasks.addAll(subtasks.values());
-        return allTasks;
+        return new TaskListView(List.of(tasks.snapshot().values(), epics.snapshot().values(),
+                subtasks.snapshot().values()));
+    }
+
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        return TaskCursor.stream(querySource(), query);
+    }
+
+    @Override
+    public TaskPage queryTasks(TaskQuery query) {
+        return TaskCursor.page(querySource(), query);
+    }
+
+    // Запрос читает снимки хранилищ на момент вызова, поэтому их можно менять во время обхода
+    TaskCursor.Source querySource() {
+        PersistentIntMap.Snapshot<Task> taskSnapshot = tasks.snapshot();
+        PersistentIntMap.Snapshot<Epic> epicSnapshot = epics.snapshot();
+        PersistentIntMap.Snapshot<Subtask> subtaskSnapshot = subtasks.snapshot();
+        return new TaskCursor.Source() {
+            @Override
+            public Iterator<? extends Task> from(TaskType type, Status status, int fromId) {
+                Map<Integer, ? extends Task> snapshot = type == TaskType.EPIC ? epicSnapshot
+                        : type == TaskType.SUBTASK ? subtaskSnapshot : taskSnapshot;
+                if (status != null) {
+                    return TaskCursor.ids(from -> statusIndex.nextId(type, status, from), snapshot::get, fromId);
+                }
+                switch (type) {
+                    case EPIC:
+                        return epicSnapshot.valuesFrom(fromId);
+                    case SUBTASK:
+                        return subtaskSnapshot.valuesFrom(fromId);
+                    default:
+                        return taskSnapshot.valuesFrom(fromId);
+                }
+            }
+
+            @Override
+            public Iterator<? extends Task> subtasksOf(int epicId, int fromId) {
+                Epic epic = epicSnapshot.get(epicId);
+                if (epic == null) {
+                    return Collections.emptyIterator();
+                }
+                return TaskCursor.ids(epic::nextSubtaskId, subtaskSnapshot::get, fromId);
+            }
+        };
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return statusIndex.count(type, status);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, Status status) {
+        return streamTasks(TaskQuery.all().ofType(type).withStatus(status)).collect(Collectors.toList());
+    }
+
+    // Перестраивает индексы по хранилищам, например после загрузки, которая пишет в них напрямую
+    protected void rebuildIndexes() {
+        for (TaskType type : TaskType.values()) {
+            statusIndex.clear(type);
+        }
+        for (Task task : tasks.values()) {
+            statusIndex.put(TaskType.TASK, task.getId(), task.getStatus());
+        }
+        for (Epic epic : epics.values()) {
+            statusIndex.put(TaskType.EPIC, epic.getId(), epic.getStatus());
+        }
+        for (Subtask subtask : subtasks.values()) {
+            statusIndex.put(TaskType.SUBTASK, subtask.getId(), subtask.getStatus());
+        }
+        searchIndex.rebuild(tasks.values(), epics.values(), subtasks.values());
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        int[] ids = searchIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = findTaskById(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    protected Task findTaskById(int id) {
+        Task task = tasks.get(id);
+        if (task != null) return task;
+
+        task = epics.get(id);
+        if (task != null) return task;
+
+        return subtasks.get(id);
+    }
+
+    // ========== Пакетные изменения ==========
+
+    // Пока пакет открыт, статусы эпиков только помечаются к пересчёту. Снимки хранилищ берутся за O(1),
+    // а эпики, чей состав меняется, копируются при первом изменении, так что откат не требует журнала.
+    // История просмотров не откатывается: из неё только убираются задачи, которых после отката нет
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        if (batch != null) {
+            mutations.accept(this);
+            return;
+        }
+        batch = new Batch(tasks.snapshot(), epics.snapshot(), subtasks.snapshot(), nextId);
+        Batch finished = batch;
+        try {
+            mutations.accept(this);
+        } catch (RuntimeException | Error e) {
+            batch = null;
+            rollback(finished);
+            throw e;
+        }
+        batch = null;
+        finished.dirtyEpics.forEach(this::updateEpicStatus);
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        batch(manager -> {
+            for (Subtask subtask : subtasks) {
+                manager.createSubtask(subtask);
+            }
+        });
+    }
+
+    protected boolean isInBatch() {
+        return batch != null;
+    }
+
+    // Запоминает состав и статус эпика перед первым изменением внутри пакета
+    private void touchEpic(Epic epic) {
+        if (batch == null || batch.touchedEpics.containsKey(epic.getId())) {
+            return;
+        }
+        Epic copy = new Epic(epic.getName(), epic.getDescription());
+        copy.copySubtasksFrom(epic);
+        copy.setStatus(epic.getStatus());
+        batch.touchedEpics.put(epic.getId(), new Epic[]{epic, copy});
+    }
+
+    private void rollback(Batch rolledBack) {
+        tasks.restore(rolledBack.tasks);
+        epics.restore(rolledBack.epics);
+        subtasks.restore(rolledBack.subtasks);
+        nextId = rolledBack.nextId;
+        for (Epic[] touched : rolledBack.touchedEpics.values()) {
+            touched[0].copySubtasksFrom(touched[1]);
+            touched[0].setStatus(touched[1].getStatus());
+        }
+
+        subtaskLinks.clear();
+        for (Subtask subtask : subtasks.values()) {
+            subtaskLinks.put(subtask.getId(), new SubtaskLink(subtask.getEpicId(), subtask.getStatus()));
+        }
+        rebuildIndexes();
+        for (Task viewed : history.getHistory()) {
+            if (findTaskById(viewed.getId()) == null) {
+                history.remove(viewed.getId());
+            }
+        }
+    }
+
+    // Снимки хранилищ на начало пакета, исходные копии затронутых эпиков и эпики к пересчёту
+    private static final class Batch {
+        private final PersistentIntMap.Snapshot<Task> tasks;
+        private final PersistentIntMap.Snapshot<Epic> epics;
+        private final PersistentIntMap.Snapshot<Subtask> subtasks;
+        private final int nextId;
+        // id эпика -> {эпик из хранилища, копия его состояния до пакета}
+        private final IntObjectMap<Epic[]> touchedEpics = new IntObjectMap<>();
+        private final IntArraySet dirtyEpics = new IntArraySet();
+
+        private Batch(PersistentIntMap.Snapshot<Task> tasks, PersistentIntMap.Snapshot<Epic> epics,
+                      PersistentIntMap.Snapshot<Subtask> subtasks, int nextId) {
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+            this.nextId = nextId;
+        }
     }
 
     // ========== Методы для простых задач ==========
 
     @Override
     public Map<Integer, Task> getTasks() {
-        return new HashMap<>(tasks);
+        return tasks.snapshot();
     }
 
     @Override
     public void deleteAllTasks() {
+        tasks.forEachKey(searchIndex::remove);
         tasks.clear();
+        statusIndex.clear(TaskType.TASK);
     }
 
     @Override
@@ -61,33 +281,51 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void createTask(Task task) {
         task.setId(getNextId());
+        deduplicate(task);
         tasks.put(task.getId(), task);
+        statusIndex.put(TaskType.TASK, task.getId(), task.getStatus());
+        searchIndex.put(task);
     }
 
     @Override
     public void updateTask(Task task) {
         if (tasks.containsKey(task.getId())) {
+            deduplicate(task);
             tasks.put(task.getId(), task);
+            statusIndex.put(TaskType.TASK, task.getId(), task.getStatus());
+            searchIndex.put(task);
         }
     }
 
     @Override
     public void deleteTaskById(int id) {
         history.remove(id);
-        tasks.remove(id);
+        if (tasks.remove(id) != null) {
+            statusIndex.remove(TaskType.TASK, id);
+            searchIndex.remove(id);
+        }
     }
 
     // ========== Методы для эпиков ==========
 
     @Override
     public Map<Integer, Epic> getEpics() {
-        return new HashMap<>(epics);
+        return epics.snapshot();
     }
 
     @Override
     public void deleteAllEpics() {
+        clearEpics();
+    }
+
+    protected void clearEpics() {
+        epics.forEachKey(searchIndex::remove);
+        subtasks.forEachKey(searchIndex::remove);
         epics.clear();
         subtasks.clear();
+        subtaskLinks.clear();
+        statusIndex.clear(TaskType.EPIC);
+        statusIndex.clear(TaskType.SUBTASK);
     }
 
     @Override
@@ -102,55 +340,72 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void createEpic(Epic epic) {
         epic.setId(getNextId());
+        deduplicate(epic);
         epics.put(epic.getId(), epic);
+        statusIndex.put(TaskType.EPIC, epic.getId(), epic.getStatus());
+        searchIndex.put(epic);
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        if (epics.containsKey(epic.getId())) {
-            Epic existingEpic = epics.get(epic.getId());
-            List<Integer> existingSubtaskIds = existingEpic.getSubtaskIds();
-
-            epic.getSubtaskIds().clear();
-            epic.getSubtaskIds().addAll(existingSubtaskIds);
+        Epic existingEpic = epics.get(epic.getId());
+        if (existingEpic != null) {
+            epic.copySubtasksFrom(existingEpic);
+            deduplicate(epic);
 
             epics.put(epic.getId(), epic);
+            searchIndex.put(epic);
             updateEpicStatus(epic.getId());
         }
     }
 
+    // Статус выводится из счётчиков эпика за O(1)
     protected void updateEpicStatus(int id) {
+        if (batch != null) {
+            if (id != 0) {
+                batch.dirtyEpics.add(id);
+            }
+            return;
+        }
         Epic epic = epics.get(id);
         if (epic == null) {
             return;
         }
+        epic.setStatus(epic.calculateStatus());
+        statusIndex.put(TaskType.EPIC, id, epic.getStatus());
+    }
 
-        List<Subtask> epicSubtasks = getSubtasksByEpicId(id);
-
-        if (epicSubtasks.isEmpty()) {
-            epic.setStatus(Status.NEW);
+    // Добавляет подзадачу в состав эпика и учитывает её статус, сам статус эпика не пересчитывает
+    protected void linkSubtask(Subtask subtask) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
             return;
         }
+        touchEpic(epic);
+        epic.addSubtaskId(subtask.getId());
+        epic.countSubtaskStatus(subtask.getStatus(), 1);
+        subtaskLinks.put(subtask.getId(), new SubtaskLink(subtask.getEpicId(), subtask.getStatus()));
+    }
 
-        boolean allNew = true;
-        boolean allDone = true;
+    // id эпика, в котором числится подзадача, или 0
+    protected int linkedEpicId(int subtaskId) {
+        SubtaskLink link = subtaskLinks.get(subtaskId);
+        return link == null ? 0 : link.epicId;
+    }
 
-        for (Subtask subtask : epicSubtasks) {
-            if (subtask.getStatus() != Status.NEW) {
-                allNew = false;
-            }
-            if (subtask.getStatus() != Status.DONE) {
-                allDone = false;
-            }
+    // Снимает учёт подзадачи и возвращает id эпика, в котором она числилась, или 0
+    protected int unlinkSubtask(int subtaskId) {
+        SubtaskLink link = subtaskLinks.remove(subtaskId);
+        if (link == null) {
+            return 0;
         }
-
-        if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else {
-            epic.setStatus(Status.IN_PROGRESS);
+        Epic epic = epics.get(link.epicId);
+        if (epic != null) {
+            touchEpic(epic);
+            epic.removeSubtaskId(subtaskId);
+            epic.countSubtaskStatus(link.status, -1);
         }
+        return link.epicId;
     }
 
     @Override
@@ -160,9 +415,9 @@ public class InMemoryTaskManager implements TaskManager {
             return Collections.emptyList();
         }
 
-        List<Subtask> result = new ArrayList<>();
-        for (int subtaskId : epic.getSubtaskIds()) {
-            Subtask subtask = subtasks.get(subtaskId);
+        List<Subtask> result = new ArrayList<>(epic.getSubtaskCount());
+        for (int i = 0; i < epic.getSubtaskCount(); i++) {
+            Subtask subtask = subtasks.get(epic.getSubtaskId(i));
             if (subtask != null) {
                 result.add(subtask);
             }
@@ -174,11 +429,17 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpicById(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
-            for (int subtaskId : epic.getSubtaskIds()) {
+            for (int i = 0; i < epic.getSubtaskCount(); i++) {
+                int subtaskId = epic.getSubtaskId(i);
                 history.remove(subtaskId);
                 subtasks.remove(subtaskId);
+                subtaskLinks.remove(subtaskId);
+                statusIndex.remove(TaskType.SUBTASK, subtaskId);
+                searchIndex.remove(subtaskId);
             }
             history.remove(id);
+            statusIndex.remove(TaskType.EPIC, id);
+            searchIndex.remove(id);
         }
     }
 
@@ -186,16 +447,27 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Map<Integer, Subtask> getSubtasks() {
-        return new HashMap<>(subtasks);
+        return subtasks.snapshot();
     }
 
     @Override
     public void deleteAllSubtasks() {
+        clearSubtasks();
+    }
+
+    // Без подзадач все эпики новые: счётчики сбрасываются разом, без пересчёта по каждому эпику
+    protected void clearSubtasks() {
         for (Epic epic : epics.values()) {
+            touchEpic(epic);
             epic.clearSubtaskIds();
-            updateEpicStatus(epic.getId());
+            epic.resetSubtaskStatusCounts();
+            epic.setStatus(Status.NEW);
         }
+        subtasks.forEachKey(searchIndex::remove);
         subtasks.clear();
+        subtaskLinks.clear();
+        statusIndex.clear(TaskType.SUBTASK);
+        statusIndex.moveAll(TaskType.EPIC, Status.NEW);
     }
 
     @Override
@@ -214,11 +486,15 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
         subtask.setId(getNextId());
+        deduplicate(subtask);
         subtasks.put(subtask.getId(), subtask);
-        epic.addSubtaskId(subtask.getId());
+        statusIndex.put(TaskType.SUBTASK, subtask.getId(), subtask.getStatus());
+        searchIndex.put(subtask);
+        linkSubtask(subtask);
         updateEpicStatus(subtask.getEpicId());
     }
 
+    // Учитывает и смену статуса, и перенос подзадачи в другой эпик
     @Override
     public void updateSubtask(Subtask subtask) {
         if (subtasks.containsKey(subtask.getId())) {
@@ -227,7 +503,16 @@ public class InMemoryTaskManager implements TaskManager {
                 return;
             }
 
+            int previousEpicId = unlinkSubtask(subtask.getId());
+            deduplicate(subtask);
             subtasks.put(subtask.getId(), subtask);
+            statusIndex.put(TaskType.SUBTASK, subtask.getId(), subtask.getStatus());
+            searchIndex.put(subtask);
+            linkSubtask(subtask);
+
+            if (previousEpicId != subtask.getEpicId()) {
+                updateEpicStatus(previousEpicId);
+            }
             updateEpicStatus(subtask.getEpicId());
         }
     }
@@ -236,11 +521,9 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteSubtaskById(int id) {
         Subtask subtask = subtasks.remove(id);
         if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.removeSubtaskId(id);
-                updateEpicStatus(subtask.getEpicId());
-            }
+            statusIndex.remove(TaskType.SUBTASK, id);
+            searchIndex.remove(id);
+            updateEpicStatus(unlinkSubtask(id));
             history.remove(id);
         }
     }
@@ -249,4 +532,9 @@ public class InMemoryTaskManager implements TaskManager {
     public List<Task> getHistory() {
         return history.getHistory();
     }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return history.getHistory(limit);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,571 @@
+package manager;
+
+import enums.Status;
+import enums.TaskOperation;
+import enums.TaskType;
+import interfaces.TaskManager;
+import interfaces.TaskManagerMetricsMXBean;
+import model.Epic;
+import model.LatencyHistogram;
+import model.OperationStats;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Обёртка над любым TaskManager, которая меряет каждую операцию: гистограмма задержек и счётчик ошибок
+// на операцию, число вызовов с последнего сброса. Запись метрик не берёт блокировок, так что обёртка
+// годится и для ConcurrentTaskManager. Метрики доступны напрямую и через JMX
+public class InstrumentedTaskManager implements TaskManager, TaskManagerMetricsMXBean {
+    private static final TaskOperation[] OPERATIONS = TaskOperation.values();
+
+    private final TaskManager delegate;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+    // Метрики хранения, если под обёрткой менеджер с файлом, иначе null
+    private final PersistenceMetrics persistence;
+    private volatile long resetAt = System.nanoTime();
+    private ObjectName objectName;
+
+    public InstrumentedTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        this.persistence = delegate instanceof FileBackedTasksManager
+                ? ((FileBackedTasksManager) delegate).getPersistenceMetrics()
+                : null;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    private void record(TaskOperation operation, long start) {
+        latencies[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    private void countError(TaskOperation operation) {
+        errors[operation.ordinal()].increment();
+    }
+
+    public LatencyHistogram getLatency(TaskOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public OperationStats getStats(TaskOperation operation) {
+        return new OperationStats(operation.name(), errors[operation.ordinal()].sum(), elapsedSeconds(),
+                latencies[operation.ordinal()]);
+    }
+
+    private double elapsedSeconds() {
+        return (System.nanoTime() - resetAt) / 1e9;
+    }
+
+    // ========== JMX ==========
+
+    // Регистрирует метрики в платформенном MBeanServer под именем tasktracker:type=TaskManager,name=<name>
+    public synchronized ObjectName registerMBean(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("Метрики уже зарегистрированы как " + objectName);
+        }
+        try {
+            ObjectName candidate = new ObjectName("tasktracker:type=TaskManager,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+            objectName = candidate;
+            return candidate;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать метрики в JMX: " + name, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось снять метрики из JMX: " + objectName, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> result = new ArrayList<>();
+        double elapsed = elapsedSeconds();
+        for (TaskOperation operation : OPERATIONS) {
+            LatencyHistogram latency = latencies[operation.ordinal()];
+            if (latency.getCount() > 0) {
+                result.add(new OperationStats(operation.name(), errors[operation.ordinal()].sum(), elapsed, latency));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getTotalOperations() {
+        long total = 0;
+        for (LatencyHistogram latency : latencies) {
+            total += latency.getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long total = 0;
+        for (LongAdder error : errors) {
+            total += error.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return persistence == null ? 0 : persistence.getBytesWritten();
+    }
+
+    @Override
+    public long getSaveCount() {
+        return persistence == null ? 0 : persistence.getSaveLatency().getCount();
+    }
+
+    @Override
+    public double getSaveP50Millis() {
+        return persistence == null ? 0 : persistence.getSaveLatency().getPercentileNanos(0.5) / 1e6;
+    }
+
+    @Override
+    public double getSaveP99Millis() {
+        return persistence == null ? 0 : persistence.getSaveLatency().getPercentileNanos(0.99) / 1e6;
+    }
+
+    @Override
+    public double getSaveMaxMillis() {
+        return persistence == null ? 0 : persistence.getSaveLatency().getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public long getLoadCount() {
+        return persistence == null ? 0 : persistence.getLoadLatency().getCount();
+    }
+
+    @Override
+    public double getLoadMaxMillis() {
+        return persistence == null ? 0 : persistence.getLoadLatency().getMaxNanos() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i].reset();
+            errors[i].reset();
+        }
+        if (persistence != null) {
+            persistence.reset();
+        }
+        resetAt = System.nanoTime();
+    }
+
+    // ========== Методы для простых задач ==========
+    @Override
+    public Map<Integer, Task> getTasks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTasks();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_TASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_TASKS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteAllTasks();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_ALL_TASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_ALL_TASKS, start);
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTaskById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_TASK_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_TASK_BY_ID, start);
+        }
+    }
+
+    @Override
+    public void createTask(Task task) {
+        long start = System.nanoTime();
+        try {
+            delegate.createTask(task);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.CREATE_TASK);
+            throw e;
+        } finally {
+            record(TaskOperation.CREATE_TASK, start);
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateTask(task);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.UPDATE_TASK);
+            throw e;
+        } finally {
+            record(TaskOperation.UPDATE_TASK, start);
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteTaskById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_TASK_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_TASK_BY_ID, start);
+        }
+    }
+
+    // ========== Методы для эпиков ==========
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpics();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_EPICS);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_EPICS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteAllEpics();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_ALL_EPICS);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_ALL_EPICS, start);
+        }
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpicById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_EPIC_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_EPIC_BY_ID, start);
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        long start = System.nanoTime();
+        try {
+            delegate.createEpic(epic);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.CREATE_EPIC);
+            throw e;
+        } finally {
+            record(TaskOperation.CREATE_EPIC, start);
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateEpic(epic);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.UPDATE_EPIC);
+            throw e;
+        } finally {
+            record(TaskOperation.UPDATE_EPIC, start);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtasksByEpicId(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_SUBTASKS_BY_EPIC_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_SUBTASKS_BY_EPIC_ID, start);
+        }
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteEpicById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_EPIC_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_EPIC_BY_ID, start);
+        }
+    }
+
+    // ========== Методы для подзадач ==========
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtasks();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_SUBTASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteAllSubtasks();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_ALL_SUBTASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_ALL_SUBTASKS, start);
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtaskById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_SUBTASK_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_SUBTASK_BY_ID, start);
+        }
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        try {
+            delegate.createSubtask(subtask);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.CREATE_SUBTASK);
+            throw e;
+        } finally {
+            record(TaskOperation.CREATE_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateSubtask(subtask);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.UPDATE_SUBTASK);
+            throw e;
+        } finally {
+            record(TaskOperation.UPDATE_SUBTASK, start);
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteSubtaskById(id);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.DELETE_SUBTASK_BY_ID);
+            throw e;
+        } finally {
+            record(TaskOperation.DELETE_SUBTASK_BY_ID, start);
+        }
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        long start = System.nanoTime();
+        try {
+            delegate.createSubtasks(subtasks);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.CREATE_SUBTASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.CREATE_SUBTASKS, start);
+        }
+    }
+
+    // Изменения внутри пакета тоже идут через обёртку, поэтому попадают и в свои метрики, и в BATCH
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        long start = System.nanoTime();
+        try {
+            delegate.batch(manager -> mutations.accept(this));
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.BATCH);
+            throw e;
+        } finally {
+            record(TaskOperation.BATCH, start);
+        }
+    }
+
+    // ========== История и запросы ==========
+    @Override
+    public List<Task> getHistory() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_HISTORY);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_HISTORY, start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory(limit);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_HISTORY);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_HISTORY, start);
+        }
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllTasks();
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_ALL_TASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_ALL_TASKS, start);
+        }
+    }
+
+    // Поток ленивый: учитывается только его создание, а не чтение
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.streamTasks(query);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.STREAM_TASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.STREAM_TASKS, start);
+        }
+    }
+
+    @Override
+    public TaskPage queryTasks(TaskQuery query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.queryTasks(query);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.QUERY_TASKS);
+            throw e;
+        } finally {
+            record(TaskOperation.QUERY_TASKS, start);
+        }
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countByStatus(type, status);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.COUNT_BY_STATUS);
+            throw e;
+        } finally {
+            record(TaskOperation.COUNT_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTasksByStatus(type, status);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.GET_TASKS_BY_STATUS);
+            throw e;
+        } finally {
+            record(TaskOperation.GET_TASKS_BY_STATUS, start);
+        }
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        long start = System.nanoTime();
+        try {
+            return delegate.search(query);
+        } catch (RuntimeException | Error e) {
+            countError(TaskOperation.SEARCH);
+            throw e;
+        } finally {
+            record(TaskOperation.SEARCH, start);
+        }
+    }
+}
@@ -0,0 +1,624 @@
+package manager;
+
+import enums.SnapshotFormat;
+import enums.Status;
+import enums.TaskType;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskQuery;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Менеджер с ленивой загрузкой CSV-снимка. При открытии файл отображается в память и просматривается
+// только ради индекса: смещение строки, тип, статус и эпик каждой задачи. Объект задачи собирается
+// из своей строки при первом обращении по id; эпик сразу получает состав и счётчики подзадач из индекса.
+// getXxxById, getSubtasksByEpicId, countByStatus и история обходятся индексом, остальные методы,
+// в том числе любые изменения, сначала догружают все задачи (hydrateAll) и дальше работают как
+// FileBackedTasksManager. Индекс хранит номер записи по id в плотном массиве: id выдаются подряд.
+// Двоичный снимок и непустой журнал читаются сразу целиком.
+public class LazyFileBackedTasksManager extends FileBackedTasksManager {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    // Столько задач фоновый прогрев собирает за один захват монитора
+    private static final int WARM_UP_CHUNK = 1024;
+
+    // Индекс снимка; null, когда все задачи уже в хранилищах
+    private Index index;
+    private Thread warmUpThread;
+
+    private LazyFileBackedTasksManager(File file, int compactionThreshold, DurabilityPolicy durability,
+                                       SnapshotFormat snapshotFormat) {
+        super(file, compactionThreshold, durability, snapshotFormat);
+    }
+
+    public static LazyFileBackedTasksManager loadFromFile(File file) {
+        return loadFromFile(file, 0, DurabilityPolicy.synchronous(), false);
+    }
+
+    // warmUp - догружать задачи в фоновом потоке, не дожидаясь обращений
+    public static LazyFileBackedTasksManager loadFromFile(File file, int compactionThreshold,
+                                                          DurabilityPolicy durability, boolean warmUp) {
+        TaskLoadEvent event = new TaskLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        boolean binary = file.exists() && BinarySnapshot.isBinary(file);
+        LazyFileBackedTasksManager manager = new LazyFileBackedTasksManager(file, compactionThreshold, durability,
+                binary ? SnapshotFormat.BINARY : SnapshotFormat.CSV);
+
+        List<Integer> historyIds = new ArrayList<>();
+        if (binary) {
+            historyIds = BinarySnapshot.read(file, manager::addLoaded);
+            manager.linkAll();
+        } else if (file.exists()) {
+            manager.index = Index.build(file);
+            historyIds = manager.index.historyIds;
+            manager.nextId = manager.index.maxId + 1;
+        }
+
+        int replayed = 0;
+        if (manager.hasJournal()) {
+            manager.hydrateAll();
+            replayed = manager.replayJournal();
+        }
+
+        for (int id : historyIds) {
+            Task task = manager.findTaskById(id);
+            if (task != null) {
+                manager.history.add(task);
+            }
+        }
+        manager.replayViewLog();
+
+        if (manager.index == null) {
+            manager.nextId = Math.max(manager.nextId, manager.maxStoredId() + 1);
+            manager.rebuildIndexes();
+        }
+        if (replayed > 0 && !manager.isJournaling()) {
+            manager.save();
+        }
+
+        manager.getPersistenceMetrics().recordLoad(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.format = manager.getSnapshotFormat().name();
+            event.taskCount = manager.index != null ? manager.index.count
+                    : manager.tasks.size() + manager.epics.size() + manager.subtasks.size();
+            event.journalRecords = replayed;
+            event.commit();
+        }
+
+        if (warmUp && manager.index != null) {
+            manager.warmUpThread = new Thread(manager::warmUp, "task-warm-up-" + file.getName());
+            manager.warmUpThread.setDaemon(true);
+            manager.warmUpThread.start();
+        }
+        return manager;
+    }
+
+    public synchronized boolean isHydrated() {
+        return index == null;
+    }
+
+    // Собирает все ещё не загруженные задачи и восстанавливает связи эпиков и индексы
+    public synchronized void hydrateAll() {
+        if (index == null) {
+            return;
+        }
+        for (int record = 0; record < index.count; record++) {
+            hydrateRecord(record);
+        }
+        index = null;
+        // Эпики получили состав из индекса, теперь его учитывает сам менеджер
+        for (Epic epic : epics.values()) {
+            epic.clearSubtaskIds();
+            epic.resetSubtaskStatusCounts();
+        }
+        linkAll();
+        rebuildIndexes();
+    }
+
+    private void addLoaded(Task task) {
+        if (task instanceof Epic) {
+            epics.put(task.getId(), (Epic) task);
+        } else if (task instanceof Subtask) {
+            subtasks.put(task.getId(), (Subtask) task);
+        } else {
+            tasks.put(task.getId(), task);
+        }
+    }
+
+    private void linkAll() {
+        for (Subtask subtask : subtasks.values()) {
+            linkSubtask(subtask);
+        }
+    }
+
+    private int maxStoredId() {
+        int maxId = 0;
+        for (Task task : getAllTasks()) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        return maxId;
+    }
+
+    private void hydrate(int id) {
+        int record = index.recordOf(id);
+        if (record >= 0) {
+            hydrateRecord(record);
+        }
+    }
+
+    private void hydrateRecord(int record) {
+        if (index.hydrated[record]) {
+            return;
+        }
+        Task task = index.decode(record);
+        if (task instanceof Epic) {
+            Epic epic = (Epic) task;
+            for (int child = index.firstChild[record]; child >= 0; child = index.nextSibling[child]) {
+                epic.addSubtaskId(index.ids[child]);
+                epic.countSubtaskStatus(STATUSES[index.statuses[child]], 1);
+            }
+        }
+        addLoaded(task);
+        index.hydrated[record] = true;
+    }
+
+    private void warmUp() {
+        int record = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            synchronized (this) {
+                if (index == null) {
+                    return;
+                }
+                int end = Math.min(record + WARM_UP_CHUNK, index.count);
+                for (; record < end; record++) {
+                    hydrateRecord(record);
+                }
+                if (record == index.count) {
+                    hydrateAll();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (warmUpThread != null) {
+            warmUpThread.interrupt();
+        }
+        super.close();
+    }
+
+    // ========== Чтение без полной загрузки ==========
+
+    @Override
+    protected Task findTaskById(int id) {
+        synchronized (this) {
+            if (index != null) {
+                hydrate(id);
+            }
+        }
+        return super.findTaskById(id);
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        if (index != null) {
+            hydrate(id);
+        }
+        return super.getTaskById(id);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        if (index != null) {
+            hydrate(id);
+        }
+        return super.getEpicById(id);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        if (index != null) {
+            hydrate(id);
+        }
+        return super.getSubtaskById(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByEpicId(int id) {
+        if (index != null) {
+            int record = index.recordOf(id);
+            if (record >= 0) {
+                hydrateRecord(record);
+                for (int child = index.firstChild[record]; child >= 0; child = index.nextSibling[child]) {
+                    hydrateRecord(child);
+                }
+            }
+        }
+        return super.getSubtasksByEpicId(id);
+    }
+
+    @Override
+    public synchronized int countByStatus(TaskType type, Status status) {
+        if (index != null) {
+            return index.counts[type.ordinal() * STATUSES.length + status.ordinal()];
+        }
+        return super.countByStatus(type, status);
+    }
+
+    // ========== Методы, которым нужны все задачи ==========
+
+    @Override
+    protected synchronized void save() {
+        hydrateAll();
+        super.save();
+    }
+
+    @Override
+    public synchronized void exportToCsv(File target) {
+        hydrateAll();
+        super.exportToCsv(target);
+    }
+
+    @Override
+    synchronized TaskCursor.Source querySource() {
+        hydrateAll();
+        return super.querySource();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        hydrateAll();
+        return super.getAllTasks();
+    }
+
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        hydrateAll();
+        return super.streamTasks(query);
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        hydrateAll();
+        return super.search(query);
+    }
+
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        hydrateAll();
+        super.batch(mutations);
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        hydrateAll();
+        super.createSubtasks(subtasks);
+    }
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        hydrateAll();
+        return super.getTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        hydrateAll();
+        super.deleteAllTasks();
+    }
+
+    @Override
+    public void createTask(Task task) {
+        hydrateAll();
+        super.createTask(task);
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        hydrateAll();
+        super.updateTask(task);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        hydrateAll();
+        super.deleteTaskById(id);
+    }
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        hydrateAll();
+        return super.getEpics();
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        hydrateAll();
+        super.deleteAllEpics();
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        hydrateAll();
+        super.createEpic(epic);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        hydrateAll();
+        super.updateEpic(epic);
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        hydrateAll();
+        super.deleteEpicById(id);
+    }
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        hydrateAll();
+        return super.getSubtasks();
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        hydrateAll();
+        super.deleteAllSubtasks();
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        hydrateAll();
+        super.createSubtask(subtask);
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        hydrateAll();
+        super.updateSubtask(subtask);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        hydrateAll();
+        super.deleteSubtaskById(id);
+    }
+
+    // ========== Индекс снимка ==========
+
+    // Записи индекса - строки задач в порядке файла. Состав эпика - список записей его подзадач
+    // через firstChild/nextSibling по возрастанию id
+    private static final class Index {
+        private final ByteBuffer buffer;
+        private final TaskCsvCodec codec = new TaskCsvCodec();
+        private int count;
+        private int[] offsets = new int[1024];
+        private int[] ids = new int[1024];
+        private byte[] types = new byte[1024];
+        private byte[] statuses = new byte[1024];
+        private int[] epicIds = new int[1024];
+        private int[] firstChild;
+        private int[] nextSibling;
+        private boolean[] hydrated;
+        // id -> номер записи + 1
+        private int[] recordById = new int[0];
+        private int maxId;
+        // Количество задач по типу и статусу: индекс - type * STATUSES.length + status
+        private final int[] counts = new int[TYPES.length * STATUSES.length];
+        private List<Integer> historyIds = new ArrayList<>();
+
+        private Index(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        static Index build(File file) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new ManagerSaveException("Снимок больше 2 ГБ не загружается лениво: " + file, null);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при загрузке из файла", e);
+            }
+            Index index = new Index(buffer);
+            index.scan();
+            index.link();
+            return index;
+        }
+
+        // Строки снимка: заголовок, задачи, пустая строка, история
+        private void scan() {
+            int limit = buffer.limit();
+            int position = lineEnd(0) + 1;
+            while (position < limit) {
+                int end = lineEnd(position);
+                int contentEnd = end > position && buffer.get(end - 1) == '\r' ? end - 1 : end;
+                if (contentEnd == position) {
+                    int from = Math.min(end + 1, limit);
+                    historyIds = FileBackedTasksManager.historyFromString(
+                            new String(bytes(from, lineEnd(from)), StandardCharsets.UTF_8));
+                    break;
+                }
+                add(position, contentEnd);
+                position = end + 1;
+            }
+            hydrated = new boolean[count];
+        }
+
+        private int lineEnd(int from) {
+            int limit = buffer.limit();
+            int position = from;
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            return position;
+        }
+
+        // Разбирает из строки только id, тип, статус и эпик; название и описание пропускаются
+        private void add(int start, int end) {
+            if (count == offsets.length) {
+                int capacity = count * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                types = Arrays.copyOf(types, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                epicIds = Arrays.copyOf(epicIds, capacity);
+            }
+            int position = fieldEnd(start, end);
+            int id = parseNumber(start, position, start, end, "id");
+            position++;
+            TaskType type = parseType(buffer.get(position));
+            position = skipField(position, end);
+            position = skipField(position, end);
+            Status status = parseStatus(buffer.get(position));
+            position = skipField(position, end);
+            position = skipField(position, end);
+            int epicEnd = fieldEnd(position, end);
+            int epicId = type == TaskType.SUBTASK || epicEnd > position
+                    ? parseNumber(position, epicEnd, start, end, "id эпика")
+                    : 0;
+
+            offsets[count] = start;
+            ids[count] = id;
+            types[count] = (byte) type.ordinal();
+            statuses[count] = (byte) status.ordinal();
+            epicIds[count] = epicId;
+            counts[type.ordinal() * STATUSES.length + status.ordinal()]++;
+            if (id >= recordById.length) {
+                recordById = Arrays.copyOf(recordById, Math.max(id + 1, recordById.length * 2));
+            }
+            recordById[id] = count + 1;
+            maxId = Math.max(maxId, id);
+            count++;
+        }
+
+        // Позиция запятой, закрывающей числовое поле, или конец строки
+        private int fieldEnd(int position, int end) {
+            while (position < end && buffer.get(position) != ',') {
+                position++;
+            }
+            return position;
+        }
+
+        // Неотрицательное число без знака; как и при полной загрузке, битая строка прерывает загрузку
+        private int parseNumber(int from, int to, int lineStart, int lineEnd, String what) {
+            if (from == to) {
+                throw malformed(lineStart, lineEnd, what);
+            }
+            int value = 0;
+            for (int position = from; position < to; position++) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                    throw malformed(lineStart, lineEnd, what);
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private ManagerSaveException malformed(int lineStart, int lineEnd, String what) {
+            return new ManagerSaveException("Некорректное поле " + what + " в строке снимка: "
+                    + new String(bytes(lineStart, lineEnd), StandardCharsets.UTF_8), null);
+        }
+
+        // Позиция после запятой, закрывающей поле; экранированные запятые пропускаются
+        private int skipField(int position, int end) {
+            while (position < end) {
+                byte b = buffer.get(position++);
+                if (b == '\\') {
+                    position++;
+                } else if (b == ',') {
+                    break;
+                }
+            }
+            return position;
+        }
+
+        private static TaskType parseType(byte first) {
+            switch (first) {
+                case 'E':
+                    return TaskType.EPIC;
+                case 'S':
+                    return TaskType.SUBTASK;
+                case 'T':
+                    return TaskType.TASK;
+                default:
+                    throw new IllegalArgumentException("Неизвестный тип задачи в снимке: " + (char) first);
+            }
+        }
+
+        private static Status parseStatus(byte first) {
+            switch (first) {
+                case 'N':
+                    return Status.NEW;
+                case 'I':
+                    return Status.IN_PROGRESS;
+                case 'D':
+                    return Status.DONE;
+                default:
+                    throw new IllegalArgumentException("Неизвестный статус в снимке: " + (char) first);
+            }
+        }
+
+        // Подзадачи в снимке идут по возрастанию id, поэтому список эпика собирается с конца
+        private void link() {
+            firstChild = new int[count];
+            nextSibling = new int[count];
+            Arrays.fill(firstChild, -1);
+            Arrays.fill(nextSibling, -1);
+            for (int record = count - 1; record >= 0; record--) {
+                if (types[record] != TaskType.SUBTASK.ordinal()) {
+                    continue;
+                }
+                int epic = recordOf(epicIds[record]);
+                if (epic >= 0 && types[epic] == TaskType.EPIC.ordinal()) {
+                    nextSibling[record] = firstChild[epic];
+                    firstChild[epic] = record;
+                }
+            }
+        }
+
+        int recordOf(int id) {
+            return id > 0 && id < recordById.length ? recordById[id] - 1 : -1;
+        }
+
+        Task decode(int record) {
+            int start = offsets[record];
+            int end = lineEnd(start);
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            return codec.decode(new String(bytes(start, end), StandardCharsets.UTF_8), 0);
+        }
+
+        private byte[] bytes(int start, int end) {
+            byte[] result = new byte[Math.max(end - start, 0)];
+            ByteBuffer source = buffer.duplicate();
+            source.position(start);
+            source.get(result);
+            return result;
+        }
+    }
+}
@@ -8,7 +8,42 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    // Для доступа из нескольких потоков
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Меньше памяти на задачу: история без узлов, повторяющиеся названия и описания хранятся один раз
+    public static TaskManager getCompact() {
+        return new InMemoryTaskManager(getCompactHistory(), new StringPool(4096));
+    }
+
+    // Задачи хранятся в прямых буферах вне кучи, методы чтения отдают копии
+    public static OffHeapTaskManager getOffHeap() {
+        return new OffHeapTaskManager();
+    }
+
+    // Метрики по каждой операции, доступные через JMX как tasktracker:type=TaskManager,name=<name>
+    public static InstrumentedTaskManager getInstrumented(TaskManager delegate, String name) {
+        InstrumentedTaskManager manager = new InstrumentedTaskManager(delegate);
+        manager.registerMBean(name);
+        return manager;
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
-}
\ No newline at end of file
+
+    // История не больше maxEntries записей и не старше maxAgeMillis, 0 - без ограничения
+    public static HistoryManager getBoundedHistory(int maxEntries, long maxAgeMillis) {
+        return new InMemoryHistoryManager(maxEntries, maxAgeMillis);
+    }
+
+    public static HistoryManager getCompactHistory() {
+        return new CompactHistoryManager();
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+}
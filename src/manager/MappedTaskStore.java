@@ -0,0 +1,497 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Файл задач, отображённый в память. Каждая задача занимает запись фиксированного размера,
+// изменение задачи переписывает только изменившиеся поля её записи.
+// Формат (big-endian):
+//   заголовок HEADER_BYTES: int magic, int version, int slotCapacity, int slotCount, int nextId,
+//     int overflowCapacity, int overflowUsed, int overflowDead;
+//   slotCapacity записей по SLOT_BYTES: int id (0 - запись свободна), byte type, byte status, int epicId,
+//     название и описание по STRING_BYTES: int длина в байтах (-1 для null), затем сами байты UTF-8,
+//     если их не больше INLINE_BYTES, иначе int смещение в области переполнения;
+//   область переполнения overflowCapacity байт - длинные строки подряд.
+// При открытии просматриваются только id записей: так строится таблица id -> запись и находятся
+// свободные записи. Строки не разбираются, задача декодируется из записи при каждом чтении (read).
+// Когда записи или область переполнения заканчиваются либо в ней много мёртвых строк, файл
+// целиком переписывается с запасом (rewrite).
+// Отдельная запись обновляется не атомарно: при сбое ОС посреди записи задача может остаться
+// частично обновлённой. Не потокобезопасен.
+final class MappedTaskStore implements Closeable {
+    private static final int MAGIC = 0x544D4D46; // "TMMF"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4096;
+    private static final int SLOT_CAPACITY = 8;
+    private static final int SLOT_COUNT = 12;
+    private static final int NEXT_ID = 16;
+    private static final int OVERFLOW_CAPACITY = 20;
+    private static final int OVERFLOW_USED = 24;
+    private static final int OVERFLOW_DEAD = 28;
+
+    static final int SLOT_BYTES = 128;
+    private static final int ID = 0;
+    private static final int TYPE = 4;
+    private static final int STATUS = 5;
+    private static final int EPIC_ID = 8;
+    private static final int NAME = 12;
+    private static final int DESCRIPTION = 68;
+    private static final int STRING_BYTES = 56;
+    private static final int INLINE_BYTES = STRING_BYTES - 4;
+
+    private static final int MIN_SLOTS = 1024;
+    private static final int MIN_OVERFLOW = 1 << 16;
+    private static final int MIN_COMPACT_BYTES = 1 << 20;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCapacity;
+    private final int overflowCapacity;
+    private final int overflowStart;
+    private int slotCount;
+    private int nextId;
+    private int overflowUsed;
+    private int overflowDead;
+    // id -> номер записи + 1, 0 - задачи нет
+    private int[] slotsById = new int[MIN_SLOTS];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private MappedTaskStore(File file, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCapacity = buffer.getInt(SLOT_CAPACITY);
+        this.overflowCapacity = buffer.getInt(OVERFLOW_CAPACITY);
+        this.overflowStart = HEADER_BYTES + slotCapacity * SLOT_BYTES;
+        this.slotCount = buffer.getInt(SLOT_COUNT);
+        this.nextId = buffer.getInt(NEXT_ID);
+        this.overflowUsed = buffer.getInt(OVERFLOW_USED);
+        this.overflowDead = buffer.getInt(OVERFLOW_DEAD);
+    }
+
+    // Поля записи без строк: их хватает, чтобы построить индексы, не декодируя задачи
+    interface RecordVisitor {
+        void visit(int id, TaskType type, Status status, int epicId);
+    }
+
+    // Отображает существующий файл или создаёт пустой
+    static MappedTaskStore open(File file) {
+        if (!file.exists() || file.length() == 0) {
+            MappedTaskStore created = create(file, MIN_SLOTS, MIN_OVERFLOW);
+            created.force();
+            TaskJournal.syncDirectory(file);
+            return created;
+        }
+        MappedTaskStore store = map(file, file.length());
+        if (store.buffer.getInt(0) != MAGIC || store.buffer.getInt(4) != VERSION) {
+            store.close();
+            throw new ManagerSaveException("Файл не является хранилищем задач: " + file, null);
+        }
+        try {
+            store.scan();
+        } catch (RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private static MappedTaskStore create(File file, int slotCapacity, int overflowCapacity) {
+        long size = (long) HEADER_BYTES + (long) slotCapacity * SLOT_BYTES + overflowCapacity;
+        if (size > Integer.MAX_VALUE) {
+            throw new ManagerSaveException("Хранилище задач не помещается в 2 ГБ: " + size + " байт", null);
+        }
+        MappedTaskStore empty = map(file, size);
+        MappedByteBuffer header = empty.buffer;
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(SLOT_CAPACITY, slotCapacity);
+        header.putInt(SLOT_COUNT, 0);
+        header.putInt(NEXT_ID, 1);
+        header.putInt(OVERFLOW_CAPACITY, overflowCapacity);
+        header.putInt(OVERFLOW_USED, 0);
+        header.putInt(OVERFLOW_DEAD, 0);
+        return new MappedTaskStore(file, empty.channel, header);
+    }
+
+    private static MappedTaskStore map(File file, long size) {
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new MappedTaskStore(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при отображении файла " + file, e);
+        }
+    }
+
+    // Свободные записи складываются в список так, чтобы первыми повторно занимались младшие.
+    // Тип и статус проверяются сразу, чтобы чтение по ним потом не падало на битой записи
+    private void scan() {
+        for (int slot = slotCount - 1; slot >= 0; slot--) {
+            int base = slotBase(slot);
+            int id = buffer.getInt(base + ID);
+            if (id == 0) {
+                pushFree(slot);
+                continue;
+            }
+            int type = buffer.get(base + TYPE);
+            int status = buffer.get(base + STATUS);
+            if (id < 0 || type < 0 || type >= TYPES.length || status < 0 || status >= STATUSES.length
+                    || slotOf(id) >= 0) {
+                throw new ManagerSaveException("Повреждённая запись " + slot + " в файле " + file, null);
+            }
+            bind(id, slot);
+        }
+    }
+
+    // Обходит записанные задачи в порядке записей, а не id
+    void forEach(RecordVisitor visitor) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = slotBase(slot);
+            int id = buffer.getInt(base + ID);
+            if (id != 0) {
+                visitor.visit(id, TYPES[buffer.get(base + TYPE)], STATUSES[buffer.get(base + STATUS)],
+                        buffer.getInt(base + EPIC_ID));
+            }
+        }
+    }
+
+    boolean contains(int id) {
+        return slotOf(id) >= 0;
+    }
+
+    // Тип задачи или null, если её нет
+    TaskType typeOf(int id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : TYPES[buffer.get(slotBase(slot) + TYPE)];
+    }
+
+    Status statusOf(int id) {
+        return STATUSES[buffer.get(slotBase(slotOf(id)) + STATUS)];
+    }
+
+    int epicIdOf(int id) {
+        return buffer.getInt(slotBase(slotOf(id)) + EPIC_ID);
+    }
+
+    // Новый объект задачи из её записи или null; состав эпика в записи не хранится
+    Task read(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        int base = slotBase(slot);
+        String name = readString(base + NAME);
+        String description = readString(base + DESCRIPTION);
+        Status status = STATUSES[buffer.get(base + STATUS)];
+        switch (TYPES[buffer.get(base + TYPE)]) {
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, buffer.getInt(base + EPIC_ID));
+                subtask.setId(id);
+                return subtask;
+            default:
+                return new Task(name, description, id, status);
+        }
+    }
+
+    int getNextId() {
+        return nextId;
+    }
+
+    void setNextId(int nextId) {
+        if (this.nextId != nextId) {
+            this.nextId = nextId;
+            buffer.putInt(NEXT_ID, nextId);
+        }
+    }
+
+    // Номер записи задачи, -1 если её нет
+    private int slotOf(int id) {
+        return id > 0 && id < slotsById.length ? slotsById[id] - 1 : -1;
+    }
+
+    private void bind(int id, int slot) {
+        if (id >= slotsById.length) {
+            slotsById = Arrays.copyOf(slotsById, Math.max(slotsById.length * 2, id + 1));
+        }
+        slotsById[id] = slot + 1;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int slotBase(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    // ========== Запись ==========
+
+    // Записывает задачу; false, если для неё нет места и файл нужно переписать через rewrite()
+    boolean put(Task task) {
+        byte[] name = encode(task.getName());
+        byte[] description = encode(task.getDescription());
+        int slot = slotOf(task.getId());
+        boolean fresh = slot < 0;
+        if (fresh && freeCount == 0 && slotCount == slotCapacity) {
+            return false;
+        }
+        int base = fresh ? -1 : slotBase(slot);
+        long overflowNeeded = overflowBytes(base, NAME, name) + overflowBytes(base, DESCRIPTION, description);
+        if (overflowUsed + overflowNeeded > overflowCapacity) {
+            return false;
+        }
+
+        if (fresh) {
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                slot = slotCount++;
+                buffer.putInt(SLOT_COUNT, slotCount);
+            }
+            base = slotBase(slot);
+        }
+        putByte(base + TYPE, (byte) typeOf(task).ordinal());
+        putByte(base + STATUS, (byte) task.getStatus().ordinal());
+        putInt(base + EPIC_ID, task instanceof Subtask ? ((Subtask) task).getEpicId() : 0);
+        writeString(base + NAME, name, fresh);
+        writeString(base + DESCRIPTION, description, fresh);
+        // Запись становится видна при следующем открытии только после того, как заполнена
+        if (fresh) {
+            buffer.putInt(base + ID, task.getId());
+            bind(task.getId(), slot);
+        }
+        return true;
+    }
+
+    void remove(int id) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+        int base = slotBase(slot);
+        buffer.putInt(base + ID, 0);
+        releaseString(base + NAME);
+        releaseString(base + DESCRIPTION);
+        slotsById[id] = 0;
+        pushFree(slot);
+    }
+
+    // В области переполнения больше половины мёртвых строк
+    boolean needsCompaction() {
+        return overflowDead > MIN_COMPACT_BYTES && overflowDead * 2L > overflowUsed;
+    }
+
+    // Переписывает задачи в новый файл с запасом места вдвое и атомарно подменяет им текущий;
+    // incoming (может быть null) записывается туда же, например задача, которой не хватило места.
+    // Текущее хранилище закрывается, дальше используется возвращённое
+    MappedTaskStore rewrite(Task incoming) {
+        int count = incoming == null ? 0 : 1;
+        long longBytes = incoming == null ? 0 : longBytes(incoming);
+        for (int id = 1; id < slotsById.length; id++) {
+            if (slotsById[id] != 0) {
+                count++;
+                longBytes += storedLongBytes(slotBase(slotsById[id] - 1));
+            }
+        }
+        int slots = MIN_SLOTS;
+        while (slots < count * 2L) {
+            slots *= 2;
+        }
+        long overflow = Math.max(MIN_OVERFLOW, longBytes * 2);
+        if (overflow > Integer.MAX_VALUE) {
+            throw new ManagerSaveException("Хранилище задач не помещается в 2 ГБ: " + overflow + " байт", null);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new ManagerSaveException("Не удалось удалить временный файл " + tmp, null);
+        }
+        MappedTaskStore fresh = create(tmp, slots, (int) overflow);
+        try {
+            for (int id = 1; id < slotsById.length; id++) {
+                if (slotsById[id] != 0) {
+                    fresh.put(read(id));
+                }
+            }
+            if (incoming != null) {
+                fresh.put(incoming);
+            }
+            fresh.setNextId(nextId);
+            fresh.force();
+        } finally {
+            fresh.close();
+        }
+        close();
+
+        TaskJournal.replaceFile(tmp, file);
+        return open(file);
+    }
+
+    // ========== Поля записи ==========
+
+    private void putByte(int position, byte value) {
+        if (buffer.get(position) != value) {
+            buffer.put(position, value);
+        }
+    }
+
+    private void putInt(int position, int value) {
+        if (buffer.getInt(position) != value) {
+            buffer.putInt(position, value);
+        }
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int overflowLength(byte[] value) {
+        return value != null && value.length > INLINE_BYTES ? value.length : 0;
+    }
+
+    private static long longBytes(Task task) {
+        return overflowLength(encode(task.getName())) + overflowLength(encode(task.getDescription()));
+    }
+
+    // Сколько байт переполнения занимают строки записи
+    private long storedLongBytes(int base) {
+        return storedOverflowLength(base + NAME) + storedOverflowLength(base + DESCRIPTION);
+    }
+
+    private int storedOverflowLength(int position) {
+        int length = buffer.getInt(position);
+        return length > INLINE_BYTES ? length : 0;
+    }
+
+    // Сколько байт переполнения займёт строка; base < 0 - запись новая
+    private int overflowBytes(int base, int field, byte[] value) {
+        if (base >= 0 && sameString(base + field, value)) {
+            return 0;
+        }
+        return overflowLength(value);
+    }
+
+    private boolean sameString(int position, byte[] value) {
+        int length = buffer.getInt(position);
+        if (value == null || length < 0) {
+            return value == null && length < 0;
+        }
+        if (length != value.length) {
+            return false;
+        }
+        int from = length > INLINE_BYTES ? overflowStart + buffer.getInt(position + 4) : position + 4;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(from + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Прежняя длинная строка записи становится мёртвой, новая дописывается в конец области переполнения
+    private void writeString(int position, byte[] value, boolean fresh) {
+        if (!fresh) {
+            if (sameString(position, value)) {
+                return;
+            }
+            releaseString(position);
+        }
+        if (value == null) {
+            buffer.putInt(position, -1);
+            return;
+        }
+        if (value.length <= INLINE_BYTES) {
+            putBytes(position + 4, value);
+            buffer.putInt(position, value.length);
+            return;
+        }
+        putBytes(overflowStart + overflowUsed, value);
+        buffer.putInt(position + 4, overflowUsed);
+        buffer.putInt(position, value.length);
+        overflowUsed += value.length;
+        buffer.putInt(OVERFLOW_USED, overflowUsed);
+    }
+
+    private void releaseString(int position) {
+        int length = buffer.getInt(position);
+        if (length > INLINE_BYTES) {
+            overflowDead += length;
+            buffer.putInt(OVERFLOW_DEAD, overflowDead);
+        }
+    }
+
+    private String readString(int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        int from = length > INLINE_BYTES ? overflowStart + buffer.getInt(position + 4) : position + 4;
+        ByteBuffer source = buffer.duplicate();
+        source.position(from);
+        source.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private void putBytes(int position, byte[] value) {
+        ByteBuffer target = buffer.duplicate();
+        target.position(position);
+        target.put(value);
+    }
+
+    static TaskType typeOf(Task task) {
+        if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+    }
+
+    // ========== Сброс на диск ==========
+
+    void force() {
+        buffer.force();
+    }
+
+    // Отображение остаётся действительным, пока буфер не соберёт сборщик мусора
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при закрытии файла " + file, e);
+        }
+    }
+}
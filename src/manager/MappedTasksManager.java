@@ -0,0 +1,821 @@
+package manager;
+
+import enums.ForcePolicy;
+import enums.Status;
+import enums.TaskType;
+import interfaces.HistoryManager;
+import interfaces.TaskManager;
+import model.Epic;
+import model.IntArraySet;
+import model.IntObjectMap;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Менеджер, хранящий задачи в файле, отображённом в память (MappedTaskStore). Мутация меняет только
+// записи затронутых задач, а не переписывает файл. Задачи в куче не хранятся: при открытии
+// просматриваются только поля id, типа, статуса и эпика, по ним строятся индекс статусов и состав
+// эпиков, а названия и описания декодируются из записи при каждом чтении - как у
+// LazyFileBackedTasksManager, только без кэша. Поэтому, как и у OffHeapTaskManager, методы чтения
+// отдают новые объекты, изменения которых в хранилище не попадают, а getTasks()/getEpics()/
+// getSubtasks() - живые представления только для чтения. Индекс слов строится при первом поиске.
+// Когда изменения сбрасываются на диск, определяет ForcePolicy. История просмотров ведётся
+// в <file>.history в том же формате, что у FileBackedTasksManager.
+public class MappedTasksManager implements TaskManager, AutoCloseable {
+    private static final int MIN_VIEW_LOG_RECORDS = 1024;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    // Отметка удалённой внутри пакета задачи
+    private static final Task REMOVED = new Task(null, null, 0, Status.NEW);
+
+    private final File file;
+    private final ForcePolicy forcePolicy;
+    private final TaskJournal viewLog;
+    private final HistoryManager history = Managers.getDefaultHistory();
+    private MappedTaskStore store;
+    private int nextId = 1;
+    // id задач по типу и статусу
+    private final StatusIndex statusIndex = new StatusIndex();
+    // id эпика -> его подзадачи и счётчики их статусов
+    private final IntObjectMap<Members> members = new IntObjectMap<>();
+    // Полнотекстовый индекс или null, пока не было поиска
+    private SearchIndex searchIndex;
+    private int viewLogLimit = MIN_VIEW_LOG_RECORDS;
+    // Открытый пакет изменений или null
+    private Batch batch;
+    private boolean closed;
+
+    public MappedTasksManager(File file) {
+        this(file, ForcePolicy.EVERY_MUTATION);
+    }
+
+    // Открывает существующий файл или создаёт новый
+    public MappedTasksManager(File file, ForcePolicy forcePolicy) {
+        this.file = file;
+        this.forcePolicy = forcePolicy;
+        this.store = MappedTaskStore.open(file);
+        this.viewLog = new TaskJournal(new File(file.getPath() + ".history"));
+        try {
+            loadIndexes();
+            viewLog.replay(record -> FileBackedTasksManager.applyViewRecord(history, this::view, record));
+        } catch (RuntimeException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    public ForcePolicy getForcePolicy() {
+        return forcePolicy;
+    }
+
+    // Индексы строятся по полям записей без строк. Сбой ОС мог прервать мутацию между записями
+    // подзадачи и эпика: подзадачи без эпика удаляются, статусы эпиков сверяются с подзадачами
+    private void loadIndexes() {
+        store.forEach((id, type, status, epicId) -> {
+            nextId = Math.max(nextId, id + 1);
+            if (type == TaskType.EPIC) {
+                members.put(id, new Members());
+            }
+            if (type != TaskType.SUBTASK) {
+                statusIndex.put(type, id, status);
+            }
+        });
+        IntArraySet orphans = new IntArraySet();
+        store.forEach((id, type, status, epicId) -> {
+            if (type != TaskType.SUBTASK) {
+                return;
+            }
+            Members epicMembers = members.get(epicId);
+            if (epicMembers == null) {
+                orphans.add(id);
+            } else {
+                epicMembers.add(id, status);
+                statusIndex.put(TaskType.SUBTASK, id, status);
+            }
+        });
+        nextId = Math.max(nextId, store.getNextId());
+
+        boolean repaired = !orphans.isEmpty();
+        orphans.forEach(store::remove);
+        for (int id = nextOf(TaskType.EPIC, null, 1); id != 0; id = nextOf(TaskType.EPIC, null, id + 1)) {
+            Status status = members.get(id).epicStatus();
+            if (store.statusOf(id) != status) {
+                Task epic = store.read(id);
+                epic.setStatus(status);
+                save(epic);
+                repaired = true;
+            }
+        }
+        if (repaired) {
+            afterWrite();
+        }
+    }
+
+    // ========== Записи ==========
+
+    // Запись, изменённая внутри открытого пакета, REMOVED или null
+    private Task pending(int id) {
+        return batch == null ? null : batch.records.get(id);
+    }
+
+    private TaskType typeAt(int id) {
+        Task record = pending(id);
+        if (record != null) {
+            return record == REMOVED ? null : MappedTaskStore.typeOf(record);
+        }
+        return store.typeOf(id);
+    }
+
+    private Status statusAt(int id) {
+        Task record = pending(id);
+        return record != null ? record.getStatus() : store.statusOf(id);
+    }
+
+    private int epicIdAt(int id) {
+        Task record = pending(id);
+        return record != null ? ((Subtask) record).getEpicId() : store.epicIdOf(id);
+    }
+
+    // Новый объект из записи задачи или null
+    private Task record(int id) {
+        Task record = pending(id);
+        if (record != null) {
+            return record == REMOVED ? null : copy(record, MappedTaskStore.typeOf(record), record.getStatus());
+        }
+        return store.read(id);
+    }
+
+    // Запись задачи как задачи типа type со статусом status, без состава эпика
+    private static Task copy(Task task, TaskType type, Status status) {
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(task.getName(), task.getDescription());
+                epic.setId(task.getId());
+                epic.setStatus(status);
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(task.getName(), task.getDescription(), status,
+                        ((Subtask) task).getEpicId());
+                subtask.setId(task.getId());
+                return subtask;
+            default:
+                return new Task(task.getName(), task.getDescription(), task.getId(), status);
+        }
+    }
+
+    // Сохраняет запись и обновляет индексы; внутри пакета запись остаётся в куче до его завершения
+    private void save(Task record) {
+        if (batch != null) {
+            batch.records.put(record.getId(), record);
+        } else if (!store.put(record)) {
+            store = store.rewrite(record);
+        }
+        statusIndex.put(MappedTaskStore.typeOf(record), record.getId(), record.getStatus());
+        if (searchIndex != null) {
+            searchIndex.put(record);
+        }
+    }
+
+    private void drop(int id, TaskType type) {
+        if (batch != null) {
+            batch.records.put(id, REMOVED);
+        } else {
+            store.remove(id);
+        }
+        statusIndex.remove(type, id);
+        if (searchIndex != null) {
+            searchIndex.remove(id);
+        }
+        history.remove(id);
+    }
+
+    // Вне пакета завершает мутацию: номер следующего id, сжатие и сброс по политике
+    private void finish() {
+        if (batch == null) {
+            afterWrite();
+        }
+    }
+
+    private void afterWrite() {
+        store.setNextId(nextId);
+        if (store.needsCompaction()) {
+            store = store.rewrite(null);
+        }
+        if (forcePolicy == ForcePolicy.EVERY_MUTATION) {
+            store.force();
+        }
+    }
+
+    // Сбрасывает на диск все изменения независимо от политики
+    public synchronized void flush() {
+        checkOpen();
+        store.force();
+        viewLog.sync();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            if (forcePolicy != ForcePolicy.NEVER) {
+                viewLog.sync();
+                store.force();
+            }
+            viewLog.close();
+        } finally {
+            store.close();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Менеджер закрыт: " + file);
+        }
+    }
+
+    // ========== Состав эпика ==========
+
+    // Внутри пакета запоминает состав эпика перед первым изменением
+    private void touchMembers(int epicId) {
+        if (batch != null && !batch.members.containsKey(epicId)) {
+            Members current = members.get(epicId);
+            batch.members.put(epicId, current == null ? Members.NONE : current.copy());
+        }
+    }
+
+    private void link(int epicId, int subtaskId, Status status) {
+        touchMembers(epicId);
+        members.get(epicId).add(subtaskId, status);
+    }
+
+    private void unlink(int epicId, int subtaskId, Status status) {
+        touchMembers(epicId);
+        members.get(epicId).remove(subtaskId, status);
+    }
+
+    private void refreshEpicStatus(int epicId) {
+        Status status = members.get(epicId).epicStatus();
+        if (statusAt(epicId) != status) {
+            save(copy(record(epicId), TaskType.EPIC, status));
+        }
+    }
+
+    // ========== Представления ==========
+
+    // Задача любого типа с составом эпика или null
+    private synchronized Task view(int id) {
+        Task task = record(id);
+        if (task instanceof Epic) {
+            Epic epic = (Epic) task;
+            Members epicMembers = members.get(id);
+            epicMembers.ids.forEach(epic::addSubtaskId);
+            for (Status status : STATUSES) {
+                epic.countSubtaskStatus(status, epicMembers.counts[status.ordinal()]);
+            }
+        }
+        return task;
+    }
+
+    private synchronized Task viewOf(int id, TaskType type) {
+        return typeAt(id) == type ? view(id) : null;
+    }
+
+    private synchronized int countOf(TaskType type) {
+        int total = 0;
+        for (Status status : STATUSES) {
+            total += statusIndex.count(type, status);
+        }
+        return total;
+    }
+
+    // Наименьший id не меньше fromId с этим типом (и статусом, если задан) или 0
+    private synchronized int nextOf(TaskType type, Status status, int fromId) {
+        if (status != null) {
+            return statusIndex.nextId(type, status, fromId);
+        }
+        int next = 0;
+        for (Status candidate : STATUSES) {
+            int id = statusIndex.nextId(type, candidate, fromId);
+            if (id != 0 && (next == 0 || id < next)) {
+                next = id;
+            }
+        }
+        return next;
+    }
+
+    private synchronized int nextSubtaskOf(int epicId, int fromId) {
+        Members epicMembers = members.get(epicId);
+        if (typeAt(epicId) != TaskType.EPIC || epicMembers == null) {
+            return 0;
+        }
+        int index = epicMembers.ids.indexOf(fromId);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < epicMembers.ids.size() ? epicMembers.ids.get(index) : 0;
+    }
+
+    // Живое представление задач одного типа только для чтения
+    private <T extends Task> Map<Integer, T> typeView(TaskType type) {
+        return new AbstractMap<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(Object key) {
+                return key instanceof Integer ? (T) viewOf((Integer) key, type) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof Integer && typeOfKey((Integer) key) == type;
+            }
+
+            @Override
+            public int size() {
+                return countOf(type);
+            }
+
+            @Override
+            public Set<Entry<Integer, T>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Integer, T>> iterator() {
+                        Iterator<Task> tasks = scan(type, null, 1);
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return tasks.hasNext();
+                            }
+
+                            @Override
+                            @SuppressWarnings("unchecked")
+                            public Entry<Integer, T> next() {
+                                Task task = tasks.next();
+                                return new SimpleImmutableEntry<>(task.getId(), (T) task);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return countOf(type);
+                    }
+                };
+            }
+        };
+    }
+
+    private synchronized TaskType typeOfKey(int id) {
+        return typeAt(id);
+    }
+
+    // Задачи типа type (и статуса status, если задан) с id от fromId по возрастанию - по индексу статусов
+    private Iterator<Task> scan(TaskType type, Status status, int fromId) {
+        return TaskCursor.ids(from -> nextOf(type, status, from), id -> viewOf(id, type), Math.max(fromId, 1));
+    }
+
+    // ========== Запросы ==========
+
+    @Override
+    public List<Task> getAllTasks() {
+        return streamTasks(TaskQuery.all()).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        return TaskCursor.stream(querySource(), query);
+    }
+
+    @Override
+    public TaskPage queryTasks(TaskQuery query) {
+        return TaskCursor.page(querySource(), query);
+    }
+
+    private TaskCursor.Source querySource() {
+        return new TaskCursor.Source() {
+            @Override
+            public Iterator<? extends Task> from(TaskType type, Status status, int fromId) {
+                return scan(type, status, fromId);
+            }
+
+            @Override
+            public Iterator<? extends Task> subtasksOf(int epicId, int fromId) {
+                return TaskCursor.ids(from -> nextSubtaskOf(epicId, from),
+                        id -> viewOf(id, TaskType.SUBTASK), Math.max(fromId, 1));
+            }
+        };
+    }
+
+    @Override
+    public synchronized int countByStatus(TaskType type, Status status) {
+        return statusIndex.count(type, status);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, Status status) {
+        return streamTasks(TaskQuery.all().ofType(type).withStatus(status)).collect(Collectors.toList());
+    }
+
+    // Первый поиск декодирует все записи, чтобы построить индекс слов; дальше индекс ведут мутации
+    @Override
+    public synchronized List<Task> search(String query) {
+        checkOpen();
+        if (searchIndex == null) {
+            SearchIndex built = new SearchIndex();
+            for (TaskType type : TYPES) {
+                for (int id = nextOf(type, null, 1); id != 0; id = nextOf(type, null, id + 1)) {
+                    built.put(record(id));
+                }
+            }
+            searchIndex = built;
+        }
+        int[] ids = searchIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(view(id));
+        }
+        return result;
+    }
+
+    // ========== История ==========
+
+    // В истории лежат представления на момент просмотра, отдаются актуальные
+    @Override
+    public synchronized List<Task> getHistory() {
+        return refresh(history.getHistory());
+    }
+
+    @Override
+    public synchronized List<Task> getHistory(int limit) {
+        return refresh(history.getHistory(limit));
+    }
+
+    private List<Task> refresh(List<Task> viewed) {
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            Task current = view(task.getId());
+            if (current != null) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private Task recordView(Task task) {
+        if (task != null) {
+            history.add(task);
+            logView(task);
+        }
+        return task;
+    }
+
+    // Просмотр - не мутация: при EVERY_MUTATION запись только передаётся ОС, на диск лог
+    // сбрасывается в flush() и close()
+    private void logView(Task task) {
+        viewLog.append(FileBackedTasksManager.viewRecord(task));
+        if (viewLog.size() >= viewLogLimit) {
+            rewriteViewLog();
+        } else if (forcePolicy == ForcePolicy.EVERY_MUTATION) {
+            viewLog.flush();
+        }
+    }
+
+    // Заменяет лог просмотров одной строкой с текущей историей
+    private void rewriteViewLog() {
+        List<Task> viewed = history.getHistory();
+        viewLog.rewrite(FileBackedTasksManager.viewLogSnapshot(history, viewed));
+        viewLogLimit = Math.max(MIN_VIEW_LOG_RECORDS, 2 * viewed.size());
+    }
+
+    // ========== Пакетные изменения ==========
+
+    // Записи, изменённые пакетом, держатся в куче и пишутся в файл один раз после его успешного
+    // завершения; при откате файл не меняется, индексы затронутых задач перестраиваются по нему.
+    // Откат мог убрать из истории просмотры, уже попавшие в лог, поэтому лог переписывается
+    @Override
+    public synchronized void batch(Consumer<TaskManager> mutations) {
+        checkOpen();
+        if (batch != null) {
+            mutations.accept(this);
+            return;
+        }
+        Batch started = new Batch(nextId);
+        batch = started;
+        try {
+            mutations.accept(this);
+        } catch (RuntimeException | Error e) {
+            batch = null;
+            rollback(started);
+            throw e;
+        }
+        batch = null;
+        started.records.forEachKey(id -> {
+            Task record = started.records.get(id);
+            if (record == REMOVED) {
+                store.remove(id);
+            } else if (!store.put(record)) {
+                store = store.rewrite(record);
+            }
+        });
+        afterWrite();
+    }
+
+    private void rollback(Batch rolledBack) {
+        nextId = rolledBack.nextId;
+        rolledBack.records.forEachKey(id -> {
+            for (TaskType type : TYPES) {
+                statusIndex.remove(type, id);
+            }
+            if (searchIndex != null) {
+                searchIndex.remove(id);
+            }
+            Task record = store.read(id);
+            if (record != null) {
+                statusIndex.put(MappedTaskStore.typeOf(record), id, record.getStatus());
+                if (searchIndex != null) {
+                    searchIndex.put(record);
+                }
+            }
+        });
+        rolledBack.members.forEachKey(epicId -> {
+            Members original = rolledBack.members.get(epicId);
+            if (original == Members.NONE) {
+                members.remove(epicId);
+            } else {
+                members.put(epicId, original);
+            }
+        });
+        for (Task viewed : history.getHistory()) {
+            if (!store.contains(viewed.getId())) {
+                history.remove(viewed.getId());
+            }
+        }
+        rewriteViewLog();
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        batch(manager -> {
+            for (Subtask subtask : subtasks) {
+                manager.createSubtask(subtask);
+            }
+        });
+    }
+
+    // Номер id до пакета, новые записи изменённых задач и прежний состав затронутых эпиков
+    private static final class Batch {
+        private final int nextId;
+        // id -> запись после изменения или REMOVED
+        private final IntObjectMap<Task> records = new IntObjectMap<>();
+        // id эпика -> состав до пакета или Members.NONE, если эпика не было
+        private final IntObjectMap<Members> members = new IntObjectMap<>();
+
+        private Batch(int nextId) {
+            this.nextId = nextId;
+        }
+    }
+
+    // Подзадачи эпика по возрастанию id и количество подзадач в каждом статусе
+    private static final class Members {
+        private static final Members NONE = new Members();
+
+        private final IntArraySet ids = new IntArraySet();
+        private final int[] counts = new int[STATUSES.length];
+
+        void add(int id, Status status) {
+            if (ids.add(id)) {
+                counts[status.ordinal()]++;
+            }
+        }
+
+        void remove(int id, Status status) {
+            if (ids.remove(id)) {
+                counts[status.ordinal()]--;
+            }
+        }
+
+        // Куски множества id становятся общими с копией и копируются при первом изменении
+        Members copy() {
+            Members copy = new Members();
+            copy.ids.copyFrom(ids);
+            System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+            return copy;
+        }
+
+        // Та же логика, что в Epic.calculateStatus(), по счётчикам
+        Status epicStatus() {
+            int total = ids.size();
+            if (total == counts[Status.NEW.ordinal()]) {
+                return Status.NEW;
+            }
+            return total == counts[Status.DONE.ordinal()] ? Status.DONE : Status.IN_PROGRESS;
+        }
+    }
+
+    // ========== Методы для простых задач ==========
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return typeView(TaskType.TASK);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        checkOpen();
+        for (int id = nextOf(TaskType.TASK, null, 1); id != 0; id = nextOf(TaskType.TASK, null, id + 1)) {
+            drop(id, TaskType.TASK);
+        }
+        finish();
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        checkOpen();
+        return recordView(viewOf(id, TaskType.TASK));
+    }
+
+    @Override
+    public synchronized void createTask(Task task) {
+        checkOpen();
+        task.setId(nextId++);
+        save(copy(task, TaskType.TASK, task.getStatus()));
+        finish();
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        checkOpen();
+        if (typeAt(task.getId()) == TaskType.TASK) {
+            save(copy(task, TaskType.TASK, task.getStatus()));
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized void deleteTaskById(int id) {
+        checkOpen();
+        if (typeAt(id) == TaskType.TASK) {
+            drop(id, TaskType.TASK);
+            finish();
+        } else {
+            history.remove(id);
+        }
+    }
+
+    // ========== Методы для эпиков ==========
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return typeView(TaskType.EPIC);
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        checkOpen();
+        for (int id = nextOf(TaskType.EPIC, null, 1); id != 0; id = nextOf(TaskType.EPIC, null, id + 1)) {
+            removeEpic(id);
+        }
+        finish();
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id) {
+        checkOpen();
+        return (Epic) recordView(viewOf(id, TaskType.EPIC));
+    }
+
+    @Override
+    public synchronized void createEpic(Epic epic) {
+        checkOpen();
+        epic.setId(nextId++);
+        epic.setStatus(Status.NEW);
+        touchMembers(epic.getId());
+        members.put(epic.getId(), new Members());
+        save(copy(epic, TaskType.EPIC, Status.NEW));
+        finish();
+    }
+
+    // Меняются название и описание; состав и статус эпика определяются подзадачами
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        checkOpen();
+        if (typeAt(epic.getId()) == TaskType.EPIC) {
+            epic.setStatus(statusAt(epic.getId()));
+            save(copy(epic, TaskType.EPIC, epic.getStatus()));
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByEpicId(int id) {
+        checkOpen();
+        if (typeAt(id) != TaskType.EPIC) {
+            return Collections.emptyList();
+        }
+        IntArraySet ids = members.get(id).ids;
+        List<Subtask> result = new ArrayList<>(ids.size());
+        ids.forEach(subtaskId -> result.add((Subtask) record(subtaskId)));
+        return result;
+    }
+
+    @Override
+    public synchronized void deleteEpicById(int id) {
+        checkOpen();
+        if (typeAt(id) == TaskType.EPIC) {
+            removeEpic(id);
+            finish();
+        }
+    }
+
+    private void removeEpic(int id) {
+        touchMembers(id);
+        members.remove(id).ids.forEach(subtaskId -> drop(subtaskId, TaskType.SUBTASK));
+        drop(id, TaskType.EPIC);
+    }
+
+    // ========== Методы для подзадач ==========
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return typeView(TaskType.SUBTASK);
+    }
+
+    // Без подзадач все эпики новые
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        checkOpen();
+        for (int id = nextOf(TaskType.SUBTASK, null, 1); id != 0; id = nextOf(TaskType.SUBTASK, null, id + 1)) {
+            unlink(epicIdAt(id), id, statusAt(id));
+            drop(id, TaskType.SUBTASK);
+        }
+        for (int id = nextOf(TaskType.EPIC, null, 1); id != 0; id = nextOf(TaskType.EPIC, null, id + 1)) {
+            refreshEpicStatus(id);
+        }
+        finish();
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id) {
+        checkOpen();
+        return (Subtask) recordView(viewOf(id, TaskType.SUBTASK));
+    }
+
+    @Override
+    public synchronized void createSubtask(Subtask subtask) {
+        checkOpen();
+        int epicId = subtask.getEpicId();
+        if (typeAt(epicId) != TaskType.EPIC) {
+            return;
+        }
+        subtask.setId(nextId++);
+        save(copy(subtask, TaskType.SUBTASK, subtask.getStatus()));
+        link(epicId, subtask.getId(), subtask.getStatus());
+        refreshEpicStatus(epicId);
+        finish();
+    }
+
+    // Учитывает и смену статуса, и перенос подзадачи в другой эпик
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        checkOpen();
+        int id = subtask.getId();
+        int epicId = subtask.getEpicId();
+        if (typeAt(id) != TaskType.SUBTASK || typeAt(epicId) != TaskType.EPIC) {
+            return;
+        }
+        int previousEpicId = epicIdAt(id);
+        unlink(previousEpicId, id, statusAt(id));
+        save(copy(subtask, TaskType.SUBTASK, subtask.getStatus()));
+        link(epicId, id, subtask.getStatus());
+
+        if (previousEpicId != epicId) {
+            refreshEpicStatus(previousEpicId);
+        }
+        refreshEpicStatus(epicId);
+        finish();
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(int id) {
+        checkOpen();
+        if (typeAt(id) != TaskType.SUBTASK) {
+            return;
+        }
+        int epicId = epicIdAt(id);
+        unlink(epicId, id, statusAt(id));
+        drop(id, TaskType.SUBTASK);
+        refreshEpicStatus(epicId);
+        finish();
+    }
+}
@@ -0,0 +1,187 @@
+package manager;
+
+import model.IntObjectMap;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+// Записи задач фиксированного размера в прямых буферах, кусками по CHUNK_RECORDS записей,
+// и таблица «id -> номер записи», индексированная самим id: id выдаются подряд, поэтому таблица
+// плотная и стоит 4 байта на выданный id. Освобождённые записи образуют список через поле NEXT.
+// Пока включён журнал отката, перед первым изменением записи или ячейки таблицы запоминается
+// её прежнее содержимое, и rollback() возвращает всё как было. Не потокобезопасен.
+final class OffHeapRecords {
+    static final int RECORD_BYTES = 40;
+    // Поля записи
+    static final int ID = 0;
+    static final int TYPE = 4;
+    static final int STATUS = 5;
+    // Подзадача - id эпика
+    static final int EPIC_ID = 8;
+    // Номера строк названия и описания в OffHeapStringPool
+    static final int NAME = 12;
+    static final int DESCRIPTION = 16;
+    // Подзадача - соседние подзадачи эпика, эпик - первая и последняя подзадачи, -1 если нет
+    static final int NEXT = 20;
+    static final int PREV = 24;
+    // Эпик - количество подзадач в каждом статусе
+    static final int STATUS_COUNTS = 28;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private IntBuffer[] idChunks = new IntBuffer[0];
+    // Записей когда-либо выделено; свободные лежат в списке freeHead
+    private int slotCount;
+    private int freeHead = -1;
+
+    // Журнал отката: прежние байты записей и прежние ячейки таблицы id
+    private IntObjectMap<byte[]> savedRecords;
+    private IntObjectMap<int[]> savedIds;
+    private int savedSlotCount;
+    private int savedFreeHead;
+
+    long offHeapBytes() {
+        return (long) chunks.length * CHUNK_RECORDS * RECORD_BYTES + (long) idChunks.length * CHUNK_RECORDS * 4;
+    }
+
+    // ========== Записи ==========
+
+    int allocate() {
+        int slot;
+        if (freeHead >= 0) {
+            slot = freeHead;
+            freeHead = getInt(slot, NEXT);
+        } else {
+            slot = slotCount++;
+            int chunk = slot >>> CHUNK_BITS;
+            if (chunk == chunks.length) {
+                ByteBuffer[] grown = new ByteBuffer[chunks.length + 1];
+                System.arraycopy(chunks, 0, grown, 0, chunks.length);
+                grown[chunk] = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_BYTES);
+                chunks = grown;
+            }
+        }
+        remember(slot);
+        ByteBuffer chunk = chunks[slot >>> CHUNK_BITS];
+        int base = (slot & CHUNK_MASK) * RECORD_BYTES;
+        for (int i = 0; i < RECORD_BYTES; i += 4) {
+            chunk.putInt(base + i, 0);
+        }
+        return slot;
+    }
+
+    void free(int slot) {
+        remember(slot);
+        putInt(slot, NEXT, freeHead);
+        putByte(slot, TYPE, (byte) 0);
+        freeHead = slot;
+    }
+
+    int getInt(int slot, int field) {
+        return chunks[slot >>> CHUNK_BITS].getInt((slot & CHUNK_MASK) * RECORD_BYTES + field);
+    }
+
+    void putInt(int slot, int field, int value) {
+        remember(slot);
+        chunks[slot >>> CHUNK_BITS].putInt((slot & CHUNK_MASK) * RECORD_BYTES + field, value);
+    }
+
+    byte getByte(int slot, int field) {
+        return chunks[slot >>> CHUNK_BITS].get((slot & CHUNK_MASK) * RECORD_BYTES + field);
+    }
+
+    void putByte(int slot, int field, byte value) {
+        remember(slot);
+        chunks[slot >>> CHUNK_BITS].put((slot & CHUNK_MASK) * RECORD_BYTES + field, value);
+    }
+
+    // ========== Таблица id ==========
+
+    // Номер записи задачи или -1
+    int slotOf(int id) {
+        if (id <= 0) {
+            return -1;
+        }
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk >= idChunks.length) {
+            return -1;
+        }
+        return idChunks[chunk].get(id & CHUNK_MASK) - 1;
+    }
+
+    void bind(int id, int slot) {
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk >= idChunks.length) {
+            IntBuffer[] grown = new IntBuffer[chunk + 1];
+            System.arraycopy(idChunks, 0, grown, 0, idChunks.length);
+            for (int i = idChunks.length; i <= chunk; i++) {
+                grown[i] = ByteBuffer.allocateDirect(CHUNK_RECORDS * 4).asIntBuffer();
+            }
+            idChunks = grown;
+        }
+        rememberId(id);
+        idChunks[chunk].put(id & CHUNK_MASK, slot + 1);
+    }
+
+    void unbind(int id) {
+        rememberId(id);
+        idChunks[id >>> CHUNK_BITS].put(id & CHUNK_MASK, 0);
+    }
+
+    // ========== Откат ==========
+
+    void beginUndo() {
+        savedRecords = new IntObjectMap<>();
+        savedIds = new IntObjectMap<>();
+        savedSlotCount = slotCount;
+        savedFreeHead = freeHead;
+    }
+
+    void commitUndo() {
+        savedRecords = null;
+        savedIds = null;
+    }
+
+    void rollback() {
+        IntObjectMap<byte[]> records = savedRecords;
+        IntObjectMap<int[]> ids = savedIds;
+        savedRecords = null;
+        savedIds = null;
+
+        records.forEachKey(slot -> {
+            ByteBuffer chunk = chunks[slot >>> CHUNK_BITS];
+            byte[] saved = records.get(slot);
+            int base = (slot & CHUNK_MASK) * RECORD_BYTES;
+            for (int i = 0; i < RECORD_BYTES; i++) {
+                chunk.put(base + i, saved[i]);
+            }
+        });
+        ids.forEachKey(id -> idChunks[id >>> CHUNK_BITS].put(id & CHUNK_MASK, ids.get(id)[0]));
+        slotCount = savedSlotCount;
+        freeHead = savedFreeHead;
+    }
+
+    private void remember(int slot) {
+        if (savedRecords == null || slot >= savedSlotCount || savedRecords.containsKey(slot)) {
+            return;
+        }
+        byte[] saved = new byte[RECORD_BYTES];
+        ByteBuffer chunk = chunks[slot >>> CHUNK_BITS];
+        int base = (slot & CHUNK_MASK) * RECORD_BYTES;
+        for (int i = 0; i < RECORD_BYTES; i++) {
+            saved[i] = chunk.get(base + i);
+        }
+        savedRecords.put(slot, saved);
+    }
+
+    private void rememberId(int id) {
+        if (savedIds == null || savedIds.containsKey(id)) {
+            return;
+        }
+        int chunk = id >>> CHUNK_BITS;
+        savedIds.put(id, new int[]{chunk < idChunks.length ? idChunks[chunk].get(id & CHUNK_MASK) : 0});
+    }
+}
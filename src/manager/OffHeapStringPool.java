@@ -0,0 +1,235 @@
+package manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Область строк вне кучи: байты UTF-8 подряд в прямом буфере, у каждой строки - номер (ссылка),
+// смещение, длина и счётчик ссылок. Одинаковые строки хранятся один раз: таблица на открытой
+// адресации ищет уже записанную строку по хешу и байтам. Номер строки не меняется, поэтому сжатие
+// области переписывает только смещения. Освобождённые номера используются повторно.
+// Не потокобезопасен.
+final class OffHeapStringPool {
+    private static final int ENTRY_BYTES = 16;
+    private static final int OFFSET = 0;
+    private static final int LENGTH = 4;
+    private static final int REF_COUNT = 8;
+    private static final int HASH = 12;
+    private static final int MIN_COMPACT_BYTES = 1 << 20;
+
+    // Байты строк
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16);
+    private int used;
+    // Байты строк, на которые больше никто не ссылается
+    private int deadBytes;
+    // Записи о строках по номеру; у свободного номера в OFFSET лежит следующий свободный
+    private ByteBuffer entries = ByteBuffer.allocateDirect(ENTRY_BYTES * 1024);
+    private int entryCount;
+    private int freeRef = -1;
+    private int liveCount;
+    // Номер строки + 1 или 0 для пустой ячейки; удаление сдвигает записи назад, без «надгробий»
+    private ByteBuffer table = ByteBuffer.allocateDirect(4 * 2048);
+    private int tableMask = 2047;
+
+    int size() {
+        return liveCount;
+    }
+
+    // Номер строки, которой заведомо больше, чем номеров у живых строк
+    int refLimit() {
+        return entryCount;
+    }
+
+    boolean isLive(int ref) {
+        return ref >= 0 && ref < entryCount && entries.getInt(ref * ENTRY_BYTES + REF_COUNT) > 0;
+    }
+
+    long offHeapBytes() {
+        return bytes.capacity() + entries.capacity() + table.capacity();
+    }
+
+    // Номер строки с увеличенным счётчиком ссылок
+    int intern(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int hash = mix(value.hashCode());
+        int cell = hash & tableMask;
+        while (true) {
+            int stored = table.getInt(cell * 4);
+            if (stored == 0) {
+                break;
+            }
+            int ref = stored - 1;
+            if (entries.getInt(ref * ENTRY_BYTES + HASH) == hash && sameBytes(ref, encoded)) {
+                retain(ref);
+                return ref;
+            }
+            cell = (cell + 1) & tableMask;
+        }
+
+        int ref = allocateEntry();
+        int offset = append(encoded);
+        int base = ref * ENTRY_BYTES;
+        entries.putInt(base + OFFSET, offset);
+        entries.putInt(base + LENGTH, encoded.length);
+        entries.putInt(base + REF_COUNT, 1);
+        entries.putInt(base + HASH, hash);
+        table.putInt(cell * 4, ref + 1);
+        liveCount++;
+        if (liveCount * 2 > tableMask + 1) {
+            resizeTable();
+        }
+        return ref;
+    }
+
+    void retain(int ref) {
+        int base = ref * ENTRY_BYTES + REF_COUNT;
+        entries.putInt(base, entries.getInt(base) + 1);
+    }
+
+    void release(int ref) {
+        int base = ref * ENTRY_BYTES;
+        int refCount = entries.getInt(base + REF_COUNT) - 1;
+        entries.putInt(base + REF_COUNT, refCount);
+        if (refCount > 0) {
+            return;
+        }
+
+        removeFromTable(ref);
+        deadBytes += entries.getInt(base + LENGTH);
+        entries.putInt(base + OFFSET, freeRef);
+        entries.putInt(base + LENGTH, 0);
+        freeRef = ref;
+        liveCount--;
+        if (deadBytes > MIN_COMPACT_BYTES && deadBytes * 2 > used) {
+            compact();
+        }
+    }
+
+    String get(int ref) {
+        int base = ref * ENTRY_BYTES;
+        int length = entries.getInt(base + LENGTH);
+        if (length == 0) {
+            return "";
+        }
+        byte[] encoded = new byte[length];
+        bytes.position(entries.getInt(base + OFFSET));
+        bytes.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private boolean sameBytes(int ref, byte[] encoded) {
+        int base = ref * ENTRY_BYTES;
+        if (entries.getInt(base + LENGTH) != encoded.length) {
+            return false;
+        }
+        int offset = entries.getInt(base + OFFSET);
+        for (int i = 0; i < encoded.length; i++) {
+            if (bytes.get(offset + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int allocateEntry() {
+        if (freeRef >= 0) {
+            int ref = freeRef;
+            freeRef = entries.getInt(ref * ENTRY_BYTES + OFFSET);
+            return ref;
+        }
+        if ((entryCount + 1) * ENTRY_BYTES > entries.capacity()) {
+            entries = grow(entries, entries.capacity() * 2L);
+        }
+        return entryCount++;
+    }
+
+    private int append(byte[] encoded) {
+        if ((long) used + encoded.length > bytes.capacity()) {
+            bytes = grow(bytes, Math.max(bytes.capacity() * 2L, (long) used + encoded.length));
+        }
+        int offset = used;
+        bytes.position(offset);
+        bytes.put(encoded);
+        used += encoded.length;
+        return offset;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, long capacity) {
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Область строк вне кучи переполнена: " + capacity + " байт");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+
+    private void removeFromTable(int ref) {
+        int hash = entries.getInt(ref * ENTRY_BYTES + HASH);
+        int cell = hash & tableMask;
+        while (table.getInt(cell * 4) != ref + 1) {
+            cell = (cell + 1) & tableMask;
+        }
+        // Сдвигаем назад записи, которые без этой ячейки стали бы недостижимы
+        int hole = cell;
+        int next = (hole + 1) & tableMask;
+        while (true) {
+            int stored = table.getInt(next * 4);
+            if (stored == 0) {
+                break;
+            }
+            int home = entries.getInt((stored - 1) * ENTRY_BYTES + HASH) & tableMask;
+            if (((next - home) & tableMask) >= ((next - hole) & tableMask)) {
+                table.putInt(hole * 4, stored);
+                hole = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        table.putInt(hole * 4, 0);
+    }
+
+    private void resizeTable() {
+        int capacity = (tableMask + 1) * 2;
+        table = ByteBuffer.allocateDirect(capacity * 4);
+        tableMask = capacity - 1;
+        for (int ref = 0; ref < entryCount; ref++) {
+            if (entries.getInt(ref * ENTRY_BYTES + REF_COUNT) > 0) {
+                int cell = entries.getInt(ref * ENTRY_BYTES + HASH) & tableMask;
+                while (table.getInt(cell * 4) != 0) {
+                    cell = (cell + 1) & tableMask;
+                }
+                table.putInt(cell * 4, ref + 1);
+            }
+        }
+    }
+
+    // Переписывает живые строки подряд в новый буфер; номера строк остаются прежними
+    private void compact() {
+        int liveBytes = used - deadBytes;
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(liveBytes * 2, 1 << 16));
+        byte[] scratch = new byte[256];
+        for (int ref = 0; ref < entryCount; ref++) {
+            int base = ref * ENTRY_BYTES;
+            if (entries.getInt(base + REF_COUNT) <= 0) {
+                continue;
+            }
+            int length = entries.getInt(base + LENGTH);
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            bytes.position(entries.getInt(base + OFFSET));
+            bytes.get(scratch, 0, length);
+            entries.putInt(base + OFFSET, compacted.position());
+            compacted.put(scratch, 0, length);
+        }
+        bytes = compacted;
+        used = liveBytes;
+        deadBytes = 0;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,738 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import interfaces.HistoryManager;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Менеджер, хранящий задачи вне кучи: записи фиксированного размера (OffHeapRecords) и
+// общая область строк без повторов (OffHeapStringPool) в прямых буферах. В куче на задачу
+// остаются только биты индекса статусов (StatusIndex), по которым перебираются задачи одного типа,
+// и история просмотров; индекс слов (SearchIndex) строится при первом поиске и дальше ведётся
+// мутациями. Методы чтения собирают из записи новый объект
+// Task/Epic/Subtask при каждом обращении, поэтому изменения возвращённого объекта в хранилище
+// не попадают - для этого есть update*. Словари из getTasks()/getEpics()/getSubtasks() -
+// живые представления только для чтения. Как и InMemoryTaskManager, не потокобезопасен.
+public class OffHeapTaskManager implements TaskManager {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    // Номер строки для null
+    private static final int NULL_REF = -1;
+
+    private final OffHeapRecords records = new OffHeapRecords();
+    private final OffHeapStringPool strings = new OffHeapStringPool();
+    private final HistoryManager history;
+    private int nextId = 1;
+    // id задач по типу и статусу
+    private final StatusIndex statusIndex = new StatusIndex();
+    // Полнотекстовый индекс или null, пока не было поиска
+    private SearchIndex searchIndex;
+    // Открытый пакет изменений или null
+    private Batch batch;
+
+    public OffHeapTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public OffHeapTaskManager(HistoryManager history) {
+        this.history = history;
+    }
+
+    // Объём прямых буферов под записи, таблицу id и строки
+    public long getOffHeapBytes() {
+        return records.offHeapBytes() + strings.offHeapBytes();
+    }
+
+    // ========== Записи ==========
+
+    private TaskType typeAt(int slot) {
+        byte type = records.getByte(slot, OffHeapRecords.TYPE);
+        return type == 0 ? null : TYPES[type - 1];
+    }
+
+    private Status statusAt(int slot) {
+        return STATUSES[records.getByte(slot, OffHeapRecords.STATUS)];
+    }
+
+    // Номер записи задачи этого типа или -1
+    private int slotOf(int id, TaskType type) {
+        int slot = records.slotOf(id);
+        return slot >= 0 && typeAt(slot) == type ? slot : -1;
+    }
+
+    private int insert(Task task, TaskType type, Status status) {
+        int id = nextId++;
+        int slot = records.allocate();
+        records.putInt(slot, OffHeapRecords.ID, id);
+        records.putByte(slot, OffHeapRecords.TYPE, (byte) (type.ordinal() + 1));
+        records.putByte(slot, OffHeapRecords.STATUS, (byte) status.ordinal());
+        records.putInt(slot, OffHeapRecords.NAME, intern(task.getName()));
+        records.putInt(slot, OffHeapRecords.DESCRIPTION, intern(task.getDescription()));
+        records.putInt(slot, OffHeapRecords.NEXT, -1);
+        records.putInt(slot, OffHeapRecords.PREV, -1);
+        records.bind(id, slot);
+        task.setId(id);
+        touch(id);
+        statusIndex.put(type, id, status);
+        if (searchIndex != null) {
+            searchIndex.put(task);
+        }
+        return slot;
+    }
+
+    private void rewrite(int slot, Task task) {
+        int name = records.getInt(slot, OffHeapRecords.NAME);
+        int description = records.getInt(slot, OffHeapRecords.DESCRIPTION);
+        records.putInt(slot, OffHeapRecords.NAME, intern(task.getName()));
+        records.putInt(slot, OffHeapRecords.DESCRIPTION, intern(task.getDescription()));
+        release(name);
+        release(description);
+        touch(task.getId());
+        if (searchIndex != null) {
+            searchIndex.put(task);
+        }
+    }
+
+    private void setStatus(int slot, TaskType type, Status status) {
+        if (statusAt(slot) != status) {
+            int id = records.getInt(slot, OffHeapRecords.ID);
+            touch(id);
+            statusIndex.put(type, id, status);
+            records.putByte(slot, OffHeapRecords.STATUS, (byte) status.ordinal());
+        }
+    }
+
+    private void remove(int slot) {
+        int id = records.getInt(slot, OffHeapRecords.ID);
+        touch(id);
+        statusIndex.remove(typeAt(slot), id);
+        if (searchIndex != null) {
+            searchIndex.remove(id);
+        }
+        release(records.getInt(slot, OffHeapRecords.NAME));
+        release(records.getInt(slot, OffHeapRecords.DESCRIPTION));
+        records.unbind(id);
+        records.free(slot);
+        history.remove(id);
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        int ref = strings.intern(value);
+        if (batch != null) {
+            batch.interned.add(ref);
+        }
+        return ref;
+    }
+
+    // Внутри пакета запоминает id, чьи записи в индексах нужно вернуть при откате
+    private void touch(int id) {
+        if (batch != null) {
+            batch.touched.add(id);
+        }
+    }
+
+    // Внутри пакета строки освобождаются только после его успешного завершения
+    private void release(int ref) {
+        if (ref == NULL_REF) {
+            return;
+        }
+        if (batch != null) {
+            batch.released.add(ref);
+        } else {
+            strings.release(ref);
+        }
+    }
+
+    // ========== Состав эпика ==========
+
+    // Подзадачи эпика - двусвязный список по возрастанию id: у эпика NEXT - первая, PREV - последняя
+    private void link(int epicSlot, int subtaskSlot) {
+        int id = records.getInt(subtaskSlot, OffHeapRecords.ID);
+        int previous = records.getInt(epicSlot, OffHeapRecords.PREV);
+        while (previous >= 0 && records.getInt(previous, OffHeapRecords.ID) > id) {
+            previous = records.getInt(previous, OffHeapRecords.PREV);
+        }
+        int next = previous >= 0
+                ? records.getInt(previous, OffHeapRecords.NEXT)
+                : records.getInt(epicSlot, OffHeapRecords.NEXT);
+
+        records.putInt(subtaskSlot, OffHeapRecords.PREV, previous);
+        records.putInt(subtaskSlot, OffHeapRecords.NEXT, next);
+        records.putInt(previous >= 0 ? previous : epicSlot, OffHeapRecords.NEXT, subtaskSlot);
+        records.putInt(next >= 0 ? next : epicSlot, OffHeapRecords.PREV, subtaskSlot);
+        records.putInt(subtaskSlot, OffHeapRecords.EPIC_ID, records.getInt(epicSlot, OffHeapRecords.ID));
+        countSubtask(epicSlot, statusAt(subtaskSlot), 1);
+    }
+
+    private void unlink(int epicSlot, int subtaskSlot) {
+        int previous = records.getInt(subtaskSlot, OffHeapRecords.PREV);
+        int next = records.getInt(subtaskSlot, OffHeapRecords.NEXT);
+        records.putInt(previous >= 0 ? previous : epicSlot, OffHeapRecords.NEXT, next);
+        records.putInt(next >= 0 ? next : epicSlot, OffHeapRecords.PREV, previous);
+        countSubtask(epicSlot, statusAt(subtaskSlot), -1);
+    }
+
+    private void countSubtask(int epicSlot, Status status, int delta) {
+        int field = OffHeapRecords.STATUS_COUNTS + 4 * status.ordinal();
+        records.putInt(epicSlot, field, records.getInt(epicSlot, field) + delta);
+    }
+
+    private int subtaskCount(int epicSlot, Status status) {
+        return records.getInt(epicSlot, OffHeapRecords.STATUS_COUNTS + 4 * status.ordinal());
+    }
+
+    // Та же логика, что в Epic.calculateStatus(), по счётчикам записи
+    private void refreshEpicStatus(int epicSlot) {
+        int total = 0;
+        for (Status status : STATUSES) {
+            total += subtaskCount(epicSlot, status);
+        }
+        Status status;
+        if (total == subtaskCount(epicSlot, Status.NEW)) {
+            status = Status.NEW;
+        } else if (total == subtaskCount(epicSlot, Status.DONE)) {
+            status = Status.DONE;
+        } else {
+            status = Status.IN_PROGRESS;
+        }
+        setStatus(epicSlot, TaskType.EPIC, status);
+    }
+
+    // ========== Представления ==========
+
+    private Task view(int slot) {
+        int id = records.getInt(slot, OffHeapRecords.ID);
+        String name = stringAt(slot, OffHeapRecords.NAME);
+        String description = stringAt(slot, OffHeapRecords.DESCRIPTION);
+        Status status = statusAt(slot);
+        switch (typeAt(slot)) {
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                for (int child = records.getInt(slot, OffHeapRecords.NEXT); child >= 0;
+                     child = records.getInt(child, OffHeapRecords.NEXT)) {
+                    epic.addSubtaskId(records.getInt(child, OffHeapRecords.ID));
+                }
+                for (Status counted : STATUSES) {
+                    epic.countSubtaskStatus(counted, subtaskCount(slot, counted));
+                }
+                return epic;
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, records.getInt(slot, OffHeapRecords.EPIC_ID));
+                subtask.setId(id);
+                return subtask;
+            default:
+                return new Task(name, description, id, status);
+        }
+    }
+
+    private String stringAt(int slot, int field) {
+        int ref = records.getInt(slot, field);
+        return ref == NULL_REF ? null : strings.get(ref);
+    }
+
+    private Task viewOf(int id, TaskType type) {
+        int slot = slotOf(id, type);
+        return slot < 0 ? null : view(slot);
+    }
+
+    private int countOf(TaskType type) {
+        int total = 0;
+        for (Status status : STATUSES) {
+            total += statusIndex.count(type, status);
+        }
+        return total;
+    }
+
+    // Наименьший id не меньше fromId с этим типом (и статусом, если задан) или 0
+    private int nextOf(TaskType type, Status status, int fromId) {
+        if (status != null) {
+            return statusIndex.nextId(type, status, fromId);
+        }
+        int next = 0;
+        for (Status candidate : STATUSES) {
+            int id = statusIndex.nextId(type, candidate, fromId);
+            if (id != 0 && (next == 0 || id < next)) {
+                next = id;
+            }
+        }
+        return next;
+    }
+
+    // Живое представление задач одного типа только для чтения
+    private <T extends Task> Map<Integer, T> typeView(TaskType type) {
+        return new AbstractMap<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(Object key) {
+                return key instanceof Integer ? (T) viewOf((Integer) key, type) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof Integer && slotOf((Integer) key, type) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return countOf(type);
+            }
+
+            @Override
+            public Set<Entry<Integer, T>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Integer, T>> iterator() {
+                        Iterator<Task> tasks = scan(type, null, 1);
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return tasks.hasNext();
+                            }
+
+                            @Override
+                            @SuppressWarnings("unchecked")
+                            public Entry<Integer, T> next() {
+                                Task task = tasks.next();
+                                return new SimpleImmutableEntry<>(task.getId(), (T) task);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return countOf(type);
+                    }
+                };
+            }
+        };
+    }
+
+    // Задачи типа type (и статуса status, если задан) с id от fromId по возрастанию - по индексу статусов
+    private Iterator<Task> scan(TaskType type, Status status, int fromId) {
+        return TaskCursor.ids(from -> nextOf(type, status, from), id -> viewOf(id, type), Math.max(fromId, 1));
+    }
+
+    // Подзадачи эпика с id от fromId. Перед каждым шагом проверяется, что последняя выданная
+    // подзадача всё ещё в этом эпике; если нет, обход продолжается от начала списка
+    private Iterator<Task> subtasksOf(int epicId, int fromId) {
+        return new Iterator<>() {
+            private int from = fromId;
+            private int lastSlot = -1;
+            private int lastId;
+            private int next = -1;
+
+            @Override
+            public boolean hasNext() {
+                if (next >= 0) {
+                    return true;
+                }
+                int epicSlot = slotOf(epicId, TaskType.EPIC);
+                if (epicSlot < 0) {
+                    return false;
+                }
+                int candidate;
+                if (lastSlot >= 0 && records.slotOf(lastId) == lastSlot
+                        && records.getInt(lastSlot, OffHeapRecords.EPIC_ID) == epicId) {
+                    candidate = records.getInt(lastSlot, OffHeapRecords.NEXT);
+                } else {
+                    candidate = records.getInt(epicSlot, OffHeapRecords.NEXT);
+                }
+                while (candidate >= 0 && records.getInt(candidate, OffHeapRecords.ID) < from) {
+                    candidate = records.getInt(candidate, OffHeapRecords.NEXT);
+                }
+                next = candidate;
+                return next >= 0;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastSlot = next;
+                lastId = records.getInt(next, OffHeapRecords.ID);
+                from = lastId + 1;
+                next = -1;
+                return view(lastSlot);
+            }
+        };
+    }
+
+    // ========== Запросы ==========
+
+    @Override
+    public List<Task> getAllTasks() {
+        return streamTasks(TaskQuery.all()).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Task> streamTasks(TaskQuery query) {
+        return TaskCursor.stream(querySource(), query);
+    }
+
+    @Override
+    public TaskPage queryTasks(TaskQuery query) {
+        return TaskCursor.page(querySource(), query);
+    }
+
+    private TaskCursor.Source querySource() {
+        return new TaskCursor.Source() {
+            @Override
+            public Iterator<? extends Task> from(TaskType type, Status status, int fromId) {
+                return scan(type, status, fromId);
+            }
+
+            @Override
+            public Iterator<? extends Task> subtasksOf(int epicId, int fromId) {
+                return OffHeapTaskManager.this.subtasksOf(epicId, fromId);
+            }
+        };
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return statusIndex.count(type, status);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskType type, Status status) {
+        return streamTasks(TaskQuery.all().ofType(type).withStatus(status)).collect(Collectors.toList());
+    }
+
+    // Первый поиск читает все строки, чтобы построить индекс слов; дальше индекс ведут мутации
+    @Override
+    public List<Task> search(String query) {
+        if (searchIndex == null) {
+            SearchIndex built = new SearchIndex();
+            for (TaskType type : TYPES) {
+                for (int id = nextOf(type, null, 1); id != 0; id = nextOf(type, null, id + 1)) {
+                    built.put(view(records.slotOf(id)));
+                }
+            }
+            searchIndex = built;
+        }
+        int[] ids = searchIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(view(records.slotOf(id)));
+        }
+        return result;
+    }
+
+    // ========== История ==========
+
+    // В истории лежат представления на момент просмотра, отдаются актуальные
+    @Override
+    public List<Task> getHistory() {
+        return refresh(history.getHistory());
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return refresh(history.getHistory(limit));
+    }
+
+    private List<Task> refresh(List<Task> viewed) {
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            int slot = records.slotOf(task.getId());
+            if (slot >= 0) {
+                result.add(view(slot));
+            }
+        }
+        return result;
+    }
+
+    private Task recordView(Task task) {
+        if (task != null) {
+            history.add(task);
+        }
+        return task;
+    }
+
+    // ========== Пакетные изменения ==========
+
+    // Журнал отката запоминает прежние байты только тех записей, которые пакет менял, а индексы
+    // после отката перестраиваются по записям только для затронутых id;
+    // строки, освобождённые в пакете, освобождаются после его успешного завершения
+    @Override
+    public void batch(Consumer<TaskManager> mutations) {
+        if (batch != null) {
+            mutations.accept(this);
+            return;
+        }
+        Batch started = new Batch(nextId);
+        batch = started;
+        records.beginUndo();
+        try {
+            mutations.accept(this);
+        } catch (RuntimeException | Error e) {
+            batch = null;
+            records.rollback();
+            nextId = started.nextId;
+            started.touched.forEach(this::reindex);
+            started.interned.forEach(strings::release);
+            for (Task viewed : history.getHistory()) {
+                if (records.slotOf(viewed.getId()) < 0) {
+                    history.remove(viewed.getId());
+                }
+            }
+            throw e;
+        }
+        batch = null;
+        records.commitUndo();
+        started.released.forEach(strings::release);
+    }
+
+    @Override
+    public void createSubtasks(Collection<Subtask> subtasks) {
+        batch(manager -> {
+            for (Subtask subtask : subtasks) {
+                manager.createSubtask(subtask);
+            }
+        });
+    }
+
+    // Возвращает индексы задачи к её записи
+    private void reindex(int id) {
+        for (TaskType type : TYPES) {
+            statusIndex.remove(type, id);
+        }
+        int slot = records.slotOf(id);
+        if (slot >= 0) {
+            statusIndex.put(typeAt(slot), id, statusAt(slot));
+        }
+        if (searchIndex != null) {
+            if (slot >= 0) {
+                searchIndex.put(view(slot));
+            } else {
+                searchIndex.remove(id);
+            }
+        }
+    }
+
+    // Номер id до пакета, затронутые id и строки, взятые и отпущенные внутри пакета
+    private static final class Batch {
+        private final int nextId;
+        private final IntList touched = new IntList();
+        private final IntList interned = new IntList();
+        private final IntList released = new IntList();
+
+        private Batch(int nextId) {
+            this.nextId = nextId;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void forEach(java.util.function.IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    // ========== Методы для простых задач ==========
+
+    @Override
+    public Map<Integer, Task> getTasks() {
+        return typeView(TaskType.TASK);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        removeAll(TaskType.TASK);
+    }
+
+    private void removeAll(TaskType type) {
+        for (int id = nextOf(type, null, 1); id != 0; id = nextOf(type, null, id + 1)) {
+            remove(records.slotOf(id));
+        }
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return recordView(viewOf(id, TaskType.TASK));
+    }
+
+    @Override
+    public void createTask(Task task) {
+        insert(task, TaskType.TASK, task.getStatus());
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        int slot = slotOf(task.getId(), TaskType.TASK);
+        if (slot >= 0) {
+            rewrite(slot, task);
+            setStatus(slot, TaskType.TASK, task.getStatus());
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        int slot = slotOf(id, TaskType.TASK);
+        if (slot >= 0) {
+            remove(slot);
+        } else {
+            history.remove(id);
+        }
+    }
+
+    // ========== Методы для эпиков ==========
+
+    @Override
+    public Map<Integer, Epic> getEpics() {
+        return typeView(TaskType.EPIC);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        removeAll(TaskType.SUBTASK);
+        removeAll(TaskType.EPIC);
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return (Epic) recordView(viewOf(id, TaskType.EPIC));
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        insert(epic, TaskType.EPIC, Status.NEW);
+        epic.setStatus(Status.NEW);
+    }
+
+    // Меняются название и описание; состав и статус эпика определяются подзадачами
+    @Override
+    public void updateEpic(Epic epic) {
+        int slot = slotOf(epic.getId(), TaskType.EPIC);
+        if (slot >= 0) {
+            rewrite(slot, epic);
+            epic.setStatus(statusAt(slot));
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpicId(int id) {
+        int epicSlot = slotOf(id, TaskType.EPIC);
+        if (epicSlot < 0) {
+            return Collections.emptyList();
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (int child = records.getInt(epicSlot, OffHeapRecords.NEXT); child >= 0;
+             child = records.getInt(child, OffHeapRecords.NEXT)) {
+            result.add((Subtask) view(child));
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        int epicSlot = slotOf(id, TaskType.EPIC);
+        if (epicSlot < 0) {
+            return;
+        }
+        int child = records.getInt(epicSlot, OffHeapRecords.NEXT);
+        while (child >= 0) {
+            int next = records.getInt(child, OffHeapRecords.NEXT);
+            remove(child);
+            child = next;
+        }
+        remove(epicSlot);
+    }
+
+    // ========== Методы для подзадач ==========
+
+    @Override
+    public Map<Integer, Subtask> getSubtasks() {
+        return typeView(TaskType.SUBTASK);
+    }
+
+    // Без подзадач все эпики новые
+    @Override
+    public void deleteAllSubtasks() {
+        removeAll(TaskType.SUBTASK);
+        for (int id = nextOf(TaskType.EPIC, null, 1); id != 0; id = nextOf(TaskType.EPIC, null, id + 1)) {
+            int slot = records.slotOf(id);
+            records.putInt(slot, OffHeapRecords.NEXT, -1);
+            records.putInt(slot, OffHeapRecords.PREV, -1);
+            for (Status status : STATUSES) {
+                countSubtask(slot, status, -subtaskCount(slot, status));
+            }
+            setStatus(slot, TaskType.EPIC, Status.NEW);
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return (Subtask) recordView(viewOf(id, TaskType.SUBTASK));
+    }
+
+    @Override
+    public void createSubtask(Subtask subtask) {
+        int epicSlot = slotOf(subtask.getEpicId(), TaskType.EPIC);
+        if (epicSlot < 0) {
+            return;
+        }
+        int slot = insert(subtask, TaskType.SUBTASK, subtask.getStatus());
+        link(epicSlot, slot);
+        refreshEpicStatus(epicSlot);
+    }
+
+    // Учитывает и смену статуса, и перенос подзадачи в другой эпик
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        int slot = slotOf(subtask.getId(), TaskType.SUBTASK);
+        int epicSlot = slotOf(subtask.getEpicId(), TaskType.EPIC);
+        if (slot < 0 || epicSlot < 0) {
+            return;
+        }
+        int previousEpicSlot = slotOf(records.getInt(slot, OffHeapRecords.EPIC_ID), TaskType.EPIC);
+        unlink(previousEpicSlot, slot);
+        rewrite(slot, subtask);
+        setStatus(slot, TaskType.SUBTASK, subtask.getStatus());
+        link(epicSlot, slot);
+
+        if (previousEpicSlot != epicSlot) {
+            refreshEpicStatus(previousEpicSlot);
+        }
+        refreshEpicStatus(epicSlot);
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        int slot = slotOf(id, TaskType.SUBTASK);
+        if (slot < 0) {
+            return;
+        }
+        int epicSlot = slotOf(records.getInt(slot, OffHeapRecords.EPIC_ID), TaskType.EPIC);
+        unlink(epicSlot, slot);
+        remove(slot);
+        refreshEpicStatus(epicSlot);
+    }
+}
@@ -0,0 +1,248 @@
+package manager;
+
+import model.Epic;
+import model.IntObjectMap;
+import model.Subtask;
+import model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Загружает CSV-снимок по частям: файл делится на куски по границам строк,
+// куски разбираются параллельно в отдельные словари, которые затем сливаются в менеджер
+final class ParallelTaskLoader {
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_CHUNK_BYTES = 64 << 20;
+    private static final int TAIL_WINDOW_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+
+    private ParallelTaskLoader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Возвращает идентификаторы истории, задачи кладёт прямо в словари менеджера
+    static List<Integer> load(File file, FileBackedTasksManager manager, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new ParallelTaskLoader(channel).load(manager, pool);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при загрузке из файла", e);
+        }
+    }
+
+    private List<Integer> load(FileBackedTasksManager manager, ForkJoinPool pool) throws IOException {
+        long size = channel.size();
+
+        // Пропускаем заголовок
+        long start = nextLineStart(0, size);
+
+        // История - единственная строка после пустой в конце файла
+        long[] separator = findHistorySeparator(start, size);
+        long end = separator[0];
+        String historyLine = decode(separator[1], size);
+
+        List<ChunkParser> chunks = split(start, end, pool.getParallelism());
+        List<Partial> partials = new ArrayList<>(chunks.size());
+        for (ChunkParser chunk : pool.invoke(new ForkAll(chunks))) {
+            partials.add(chunk.getRawResult());
+        }
+
+        merge(manager, partials);
+
+        return FileBackedTasksManager.historyFromString(historyLine.trim());
+    }
+
+    private List<ChunkParser> split(long start, long end, int parallelism) throws IOException {
+        long length = end - start;
+        long chunkSize = Math.max(MIN_CHUNK_BYTES, length / (Math.max(1, parallelism) * 4L) + 1);
+        chunkSize = Math.min(chunkSize, MAX_CHUNK_BYTES);
+
+        List<ChunkParser> chunks = new ArrayList<>();
+        long from = start;
+        while (from < end) {
+            long to = from + chunkSize >= end ? end : nextLineStart(from + chunkSize, end);
+            chunks.add(new ChunkParser(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    // Эпики сливаются первыми, чтобы подзадачи можно было сразу привязать к ним
+    private static void merge(FileBackedTasksManager manager, List<Partial> partials) {
+        int maxId = 0;
+        for (Partial partial : partials) {
+            for (Epic epic : partial.epics.values()) {
+                manager.deduplicate(epic);
+                manager.epics.put(epic.getId(), epic);
+            }
+            maxId = Math.max(maxId, partial.maxId);
+        }
+        for (Partial partial : partials) {
+            for (Task task : partial.tasks.values()) {
+                manager.deduplicate(task);
+                manager.tasks.put(task.getId(), task);
+            }
+            for (Subtask subtask : partial.subtasks.values()) {
+                manager.deduplicate(subtask);
+                manager.subtasks.put(subtask.getId(), subtask);
+                manager.linkSubtask(subtask);
+            }
+        }
+        manager.nextId = maxId + 1;
+    }
+
+    private long nextLineStart(long position, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long current = position;
+        while (current < limit) {
+            buffer.clear();
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && current + i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return limit;
+    }
+
+    // Возвращает [конец задач, начало строки истории]; без пустой строки история пуста
+    private long[] findHistorySeparator(long start, long size) throws IOException {
+        long window = TAIL_WINDOW_BYTES;
+        while (true) {
+            long from = Math.max(start, size - window);
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - from));
+            channel.read(tail, from);
+
+            for (int i = tail.limit() - 1; i >= 0; i--) {
+                if (tail.get(i) != '\n') {
+                    continue;
+                }
+                int previous = i - 1;
+                if (previous >= 0 && tail.get(previous) == '\r') {
+                    previous--;
+                }
+                if (previous >= 0 && tail.get(previous) == '\n') {
+                    return new long[]{from + previous + 1, from + i + 1};
+                }
+                if (previous < 0 && from == start) {
+                    // Пустая строка сразу после заголовка: задач нет
+                    return new long[]{start, from + i + 1};
+                }
+            }
+
+            if (from == start) {
+                return new long[]{size, size};
+            }
+            window *= 2;
+        }
+    }
+
+    private String decode(long from, long to) throws IOException {
+        if (to <= from) {
+            return "";
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        channel.read(buffer, from);
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private static class Partial {
+        private final IntObjectMap<Task> tasks = new IntObjectMap<>();
+        private final IntObjectMap<Epic> epics = new IntObjectMap<>();
+        private final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+        private int maxId;
+
+        private void add(Task task) {
+            if (task instanceof Epic) {
+                epics.put(task.getId(), (Epic) task);
+            } else if (task instanceof Subtask) {
+                subtasks.put(task.getId(), (Subtask) task);
+            } else {
+                tasks.put(task.getId(), task);
+            }
+            maxId = Math.max(maxId, task.getId());
+        }
+    }
+
+    private class ChunkParser extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        private ChunkParser(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            Partial partial = new Partial();
+            try {
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                CharBuffer decoded = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+                char[] chars = decoded.array();
+                int offset = decoded.arrayOffset();
+                int limit = offset + decoded.limit();
+                TaskCsvCodec codec = new TaskCsvCodec();
+
+                int lineStart = offset;
+                for (int i = offset; i <= limit; i++) {
+                    if (i < limit && chars[i] != '\n') {
+                        continue;
+                    }
+                    int from = lineStart;
+                    int end = i;
+                    while (from < end && chars[from] <= ' ') {
+                        from++;
+                    }
+                    while (end > from && chars[end - 1] <= ' ') {
+                        end--;
+                    }
+                    if (from < end) {
+                        partial.add(codec.decode(chars, from, end));
+                    }
+                    lineStart = i + 1;
+                }
+            } catch (CharacterCodingException e) {
+                throw new ManagerSaveException("Некорректная кодировка в диапазоне " + from + ".." + to, e);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при загрузке из файла", e);
+            }
+            return partial;
+        }
+    }
+
+    private static class ForkAll extends RecursiveTask<List<ChunkParser>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ChunkParser> chunks;
+
+        private ForkAll(List<ChunkParser> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected List<ChunkParser> compute() {
+            invokeAll(chunks);
+            return chunks;
+        }
+    }
+}
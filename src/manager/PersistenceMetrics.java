@@ -0,0 +1,45 @@
+package manager;
+
+import model.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Метрики хранения FileBackedTasksManager: байты, записанные в снимки, журнал и лог просмотров,
+// а также длительность записи снимков и загрузки
+public class PersistenceMetrics {
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    void addBytesWritten(long bytes) {
+        if (bytes > 0) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    void recordSave(long nanos) {
+        saveLatency.record(nanos);
+    }
+
+    void recordLoad(long nanos) {
+        loadLatency.record(nanos);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public LatencyHistogram getSaveLatency() {
+        return saveLatency;
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public void reset() {
+        bytesWritten.reset();
+        saveLatency.reset();
+        loadLatency.reset();
+    }
+}
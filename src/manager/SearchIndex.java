@@ -0,0 +1,278 @@
+package manager;
+
+import model.IntArraySet;
+import model.IntObjectMap;
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Инвертированный индекс по названию и описанию задач: слово -> отсортированные id задач.
+// Слова - последовательности букв и цифр в нижнем регистре, «ё» приравнена к «е», так что кириллица
+// и латиница разбираются одинаково. Словарь упорядочен, поэтому префиксный запрос - это диапазон ключей.
+// Чтение идёт под общей блокировкой, изменения - под исключительной.
+final class SearchIndex {
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final TreeMap<String, IntArraySet> postings = new TreeMap<>();
+    // Слова каждой задачи, чтобы при изменении и удалении снять её только из своих списков
+    private final IntObjectMap<String[]> tokensById = new IntObjectMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Индексирует задачу заново, снимая её старые слова
+    void put(Task task) {
+        String[] tokens = tokenize(task.getName(), task.getDescription());
+        lock.writeLock().lock();
+        try {
+            removeTokens(task.getId());
+            addTokens(task.getId(), tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Строит индекс заново. Каждая часть упорядочена по id, части сливаются по возрастанию id,
+    // поэтому каждый id дописывается в конец своих списков без сдвигов
+    @SafeVarargs
+    final void rebuild(Collection<? extends Task>... parts) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            tokensById.clear();
+
+            List<Iterator<? extends Task>> iterators = new ArrayList<>(parts.length);
+            Task[] heads = new Task[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                iterators.add(parts[i].iterator());
+                heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+            }
+            while (true) {
+                int best = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] != null && (best < 0 || heads[i].getId() < heads[best].getId())) {
+                        best = i;
+                    }
+                }
+                if (best < 0) {
+                    return;
+                }
+                Task task = heads[best];
+                addTokens(task.getId(), tokenize(task.getName(), task.getDescription()));
+                heads[best] = iterators.get(best).hasNext() ? iterators.get(best).next() : null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeTokens(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            tokensById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addTokens(int id, String[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            Map.Entry<String, IntArraySet> entry = postings.ceilingEntry(tokens[i]);
+            if (entry != null && entry.getKey().equals(tokens[i])) {
+                // Одно слово - один экземпляр строки на весь индекс
+                tokens[i] = entry.getKey();
+                entry.getValue().add(id);
+            } else {
+                IntArraySet ids = new IntArraySet();
+                ids.add(id);
+                postings.put(tokens[i], ids);
+            }
+        }
+        if (tokens.length > 0) {
+            tokensById.put(id, tokens);
+        }
+    }
+
+    private void removeTokens(int id) {
+        String[] tokens = tokensById.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            IntArraySet ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    // id задач, содержащих все слова запроса, по возрастанию; слово с «*» на конце ищется как префикс
+    int[] search(String query) {
+        List<String> terms = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        parseQuery(query, terms, prefixes);
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            int[][] lists = new int[terms.size()][];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = prefixes.get(i) ? prefixIds(terms.get(i)) : exactIds(terms.get(i));
+                if (lists[i].length == 0) {
+                    return lists[i];
+                }
+            }
+
+            // Пересекаем, начиная с самого короткого списка
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+            int[] result = lists[0];
+            for (int i = 1; i < lists.length && result.length > 0; i++) {
+                result = intersect(result, lists[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] exactIds(String term) {
+        IntArraySet ids = postings.get(term);
+        return ids == null ? new int[0] : ids.toArray();
+    }
+
+    // Объединение списков всех слов с этим префиксом
+    private int[] prefixIds(String prefix) {
+        SortedMap<String, IntArraySet> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next().toArray();
+        }
+        int total = 0;
+        for (IntArraySet ids : range.values()) {
+            total += ids.size();
+        }
+        int[] union = new int[total];
+        int filled = 0;
+        for (IntArraySet ids : range.values()) {
+            int[] part = ids.toArray();
+            System.arraycopy(part, 0, union, filled, part.length);
+            filled += part.length;
+        }
+        Arrays.sort(union);
+
+        int unique = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (unique == 0 || union[i] != union[unique - 1]) {
+                union[unique++] = union[i];
+            }
+        }
+        return Arrays.copyOf(union, unique);
+    }
+
+    // Для каждого элемента короткого списка двоичный поиск в длинном
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int from = 0;
+        for (int id : small) {
+            int position = Arrays.binarySearch(large, from, large.length, id);
+            if (position >= 0) {
+                result[count++] = id;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from == large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    static void parseQuery(String query, List<String> terms, List<Boolean> prefixes) {
+        if (query == null) {
+            return;
+        }
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (start < i) {
+                terms.add(normalize(query, start, i));
+                prefixes.add(i < length && query.charAt(i) == '*');
+            }
+        }
+    }
+
+    // Уникальные слова названия и описания
+    static String[] tokenize(String name, String description) {
+        List<String> tokens = new ArrayList<>();
+        collectTokens(name, tokens);
+        collectTokens(description, tokens);
+        if (tokens.isEmpty()) {
+            return NO_TOKENS;
+        }
+
+        String[] sorted = tokens.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int unique = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (!sorted[i].equals(sorted[unique - 1])) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+    }
+
+    private static void collectTokens(String text, List<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (start < i) {
+                tokens.add(normalize(text, start, i));
+            }
+        }
+    }
+
+    private static String normalize(String text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            chars[i - start] = c == 'ё' ? 'е' : c;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,101 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+
+import java.util.BitSet;
+
+// Вторичный индекс «тип и статус -> id задач»: по битовому множеству на каждую пару и счётчики к ним.
+// Количество отдаётся за O(1), состав - обходом установленных бит. Задача каждого типа числится ровно
+// в одном статусе, так что put() сам снимает её со старого. Операции над одним типом сериализуются
+// на мониторе этого типа, поэтому индекс можно разделять между потоками.
+final class StatusIndex {
+    private static final Status[] STATUSES = Status.values();
+
+    private final TypeCells[] cells = new TypeCells[TaskType.values().length];
+
+    StatusIndex() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new TypeCells();
+        }
+    }
+
+    void put(TaskType type, int id, Status status) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            typeCells.removeId(id);
+            typeCells.members[status.ordinal()].set(id);
+            typeCells.counts[status.ordinal()]++;
+        }
+    }
+
+    void remove(TaskType type, int id) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            typeCells.removeId(id);
+        }
+    }
+
+    void clear(TaskType type) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                typeCells.members[i] = new BitSet();
+                typeCells.counts[i] = 0;
+            }
+        }
+    }
+
+    // Переводит все задачи типа в один статус, не перебирая их по одной
+    void moveAll(TaskType type, Status status) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            BitSet target = typeCells.members[status.ordinal()];
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (i != status.ordinal()) {
+                    target.or(typeCells.members[i]);
+                    typeCells.counts[status.ordinal()] += typeCells.counts[i];
+                    typeCells.members[i] = new BitSet();
+                    typeCells.counts[i] = 0;
+                }
+            }
+        }
+    }
+
+    int count(TaskType type, Status status) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            return typeCells.counts[status.ordinal()];
+        }
+    }
+
+    // Наименьший id не меньше fromId с этим типом и статусом или 0, если таких нет
+    int nextId(TaskType type, Status status, int fromId) {
+        TypeCells typeCells = cells[type.ordinal()];
+        synchronized (typeCells) {
+            int id = typeCells.members[status.ordinal()].nextSetBit(fromId);
+            return Math.max(id, 0);
+        }
+    }
+
+    private static final class TypeCells {
+        private final BitSet[] members = new BitSet[STATUSES.length];
+        private final int[] counts = new int[STATUSES.length];
+
+        TypeCells() {
+            for (int i = 0; i < members.length; i++) {
+                members[i] = new BitSet();
+            }
+        }
+
+        void removeId(int id) {
+            for (int i = 0; i < members.length; i++) {
+                if (members[i].get(id)) {
+                    members[i].clear(id);
+                    counts[i]--;
+                    return;
+                }
+            }
+        }
+    }
+}
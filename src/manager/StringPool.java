@@ -0,0 +1,43 @@
+package manager;
+
+// Убирает повторы названий и описаний задач: одинаковые строки заменяются одним экземпляром.
+// Это кэш с прямым отображением, а не полный словарь: строка кладётся в ячейку по хешу и вытесняет
+// прежнюю, поэтому размер пула фиксирован и он не удерживает строки удалённых задач дольше,
+// чем их вытеснят. Частые повторы почти всегда находятся. Гонки безопасны: запись ссылки
+// атомарна, а String неизменяем, поэтому пулом можно пользоваться из нескольких потоков.
+public final class StringPool {
+    private final String[] cells;
+    private final int mask;
+
+    // capacity округляется вверх до степени двойки
+    public StringPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным: " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.cells = new String[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return cells.length;
+    }
+
+    // Ранее сохранённая равная строка или сама value
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int h = value.hashCode() * 0x9E3779B9;
+        int cell = (h ^ (h >>> 16)) & mask;
+        String pooled = cells[cell];
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+        cells[cell] = value;
+        return value;
+    }
+}
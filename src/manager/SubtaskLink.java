@@ -0,0 +1,15 @@
+package manager;
+
+import enums.Status;
+
+// То, что менеджер учёл в эпике для подзадачи: нужно, чтобы корректно снять учёт,
+// даже если сохранённый объект подзадачи изменили снаружи
+final class SubtaskLink {
+    final int epicId;
+    final Status status;
+
+    SubtaskLink(int epicId, Status status) {
+        this.epicId = epicId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,275 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Кодирует задачи в строки CSV и обратно без промежуточных объектов:
+// запись идёт в переиспользуемый буфер, чтение - прямо из среза массива символов.
+// Запятая, обратная косая черта и переводы строк внутри полей экранируются обратной косой чертой.
+// Экземпляр не потокобезопасен.
+final class TaskCsvCodec {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final char[][] TYPE_NAMES = names(TYPES);
+    private static final char[][] STATUS_NAMES = names(STATUSES);
+
+    private char[] buffer = new char[256];
+    private int length;
+    private char[] scratch = new char[256];
+    private final StringBuilder unescaped = new StringBuilder();
+    private int position;
+
+    private static char[][] names(Enum<?>[] constants) {
+        char[][] names = new char[constants.length][];
+        for (int i = 0; i < constants.length; i++) {
+            names[i] = constants[i].name().toCharArray();
+        }
+        return names;
+    }
+
+    // ========== Запись ==========
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // Кладёт в буфер prefix и строку задачи, возвращает длину
+    int encode(String prefix, Task task) {
+        length = 0;
+        appendRaw(prefix);
+        appendTask(task);
+        return length;
+    }
+
+    void write(Writer writer, Task task) throws IOException {
+        length = 0;
+        appendTask(task);
+        writer.write(buffer, 0, length);
+    }
+
+    private void appendTask(Task task) {
+        TaskType type = task instanceof Epic
+                ? TaskType.EPIC
+                : task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+
+        appendInt(task.getId());
+        append(',');
+        appendRaw(TYPE_NAMES[type.ordinal()]);
+        append(',');
+        appendEscaped(task.getName());
+        append(',');
+        appendRaw(STATUS_NAMES[task.getStatus().ordinal()]);
+        append(',');
+        appendEscaped(task.getDescription());
+        append(',');
+        if (type == TaskType.SUBTASK) {
+            appendInt(((Subtask) task).getEpicId());
+        }
+    }
+
+    private void appendEscaped(String value) {
+        // null записывается так же, как раньше через String.format
+        String text = value == null ? "null" : value;
+        ensureCapacity(length + text.length() * 2);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case ',':
+                case '\\':
+                    buffer[length++] = '\\';
+                    buffer[length++] = c;
+                    break;
+                case '\n':
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'n';
+                    break;
+                case '\r':
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'r';
+                    break;
+                default:
+                    buffer[length++] = c;
+            }
+        }
+    }
+
+    private void appendInt(int value) {
+        ensureCapacity(length + 11);
+        if (value == Integer.MIN_VALUE) {
+            appendRaw("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendRaw(String value) {
+        ensureCapacity(length + value.length());
+        value.getChars(0, value.length(), buffer, length);
+        length += value.length();
+    }
+
+    private void appendRaw(char[] value) {
+        ensureCapacity(length + value.length);
+        System.arraycopy(value, 0, buffer, length, value.length);
+        length += value.length;
+    }
+
+    private void append(char c) {
+        ensureCapacity(length + 1);
+        buffer[length++] = c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            char[] grown = new char[Math.max(capacity, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    // ========== Чтение ==========
+
+    // Разбирает строку начиная с позиции from
+    Task decode(String line, int from) {
+        int size = line.length() - from;
+        if (size > scratch.length) {
+            scratch = new char[Math.max(size, scratch.length * 2)];
+        }
+        line.getChars(from, line.length(), scratch, 0);
+        return decode(scratch, 0, size);
+    }
+
+    // Разбирает строку задачи из chars[from, to)
+    Task decode(char[] chars, int from, int to) {
+        position = from;
+        int id = parseInt(chars, to);
+        TaskType type = TYPES[parseEnum(chars, to, TYPE_NAMES, "тип задачи")];
+        String name = parseString(chars, to);
+        Status status = STATUSES[parseEnum(chars, to, STATUS_NAMES, "статус")];
+        String description = parseString(chars, to);
+
+        switch (type) {
+            case TASK:
+                return new Task(name, description, id, status);
+
+            case EPIC:
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                return epic;
+
+            case SUBTASK:
+                Subtask subtask = new Subtask(name, description, status, parseInt(chars, to));
+                subtask.setId(id);
+                return subtask;
+
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    private int parseInt(char[] chars, int to) {
+        int i = position;
+        boolean negative = i < to && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i >= to || chars[i] < '0' || chars[i] > '9') {
+            throw malformed(chars, to, "число");
+        }
+
+        int value = 0;
+        while (i < to && chars[i] != ',') {
+            char c = chars[i++];
+            if (c < '0' || c > '9') {
+                throw malformed(chars, to, "число");
+            }
+            value = value * 10 + (c - '0');
+        }
+        position = i + 1;
+        return negative ? -value : value;
+    }
+
+    private int parseEnum(char[] chars, int to, char[][] names, String what) {
+        int start = position;
+        int end = start;
+        while (end < to && chars[end] != ',') {
+            end++;
+        }
+        position = end + 1;
+
+        int fieldLength = end - start;
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            char[] name = names[ordinal];
+            if (name.length != fieldLength) {
+                continue;
+            }
+            int i = 0;
+            while (i < fieldLength && name[i] == chars[start + i]) {
+                i++;
+            }
+            if (i == fieldLength) {
+                return ordinal;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный " + what + ": " + new String(chars, start, fieldLength));
+    }
+
+    private String parseString(char[] chars, int to) {
+        int start = position;
+        int end = start;
+        boolean escaped = false;
+        while (end < to && chars[end] != ',') {
+            if (chars[end] == '\\') {
+                escaped = true;
+                end++;
+            }
+            end++;
+        }
+        end = Math.min(end, to);
+        position = end + 1;
+
+        if (!escaped) {
+            return new String(chars, start, end - start);
+        }
+
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == '\\' && i + 1 < end) {
+                char next = chars[++i];
+                unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private IllegalArgumentException malformed(char[] chars, int to, String expected) {
+        int from = Math.min(position, to);
+        return new IllegalArgumentException("Ожидалось " + expected + ": " + new String(chars, from, to - from));
+    }
+}
@@ -0,0 +1,177 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Ленивый обход задач по запросу: типы идут по порядку TaskType, внутри типа - по возрастанию id.
+// Источник отдаёт итераторы, начинающиеся с нужного id, поэтому ни смещение по токену,
+// ни фильтры не требуют копировать хранилища.
+final class TaskCursor implements Iterator<Task> {
+    private static final TaskType[] ALL_TYPES = TaskType.values();
+
+    interface Source {
+        // Задачи типа type с id не меньше fromId по возрастанию id; источник с индексом статусов
+        // может сразу отобрать задачи со статусом status (null - любой), остальные фильтрует курсор
+        Iterator<? extends Task> from(TaskType type, Status status, int fromId);
+
+        // Подзадачи эпика с id не меньше fromId по возрастанию id
+        Iterator<? extends Task> subtasksOf(int epicId, int fromId);
+    }
+
+    private final Source source;
+    private final TaskQuery query;
+    private final int limit;
+    // Смещение отсчитывается от начала обхода; продолжение по токену уже стоит за ним
+    private final int offset;
+    private int typeIndex;
+    private TaskType currentType;
+    private Iterator<? extends Task> current;
+    private Task next;
+    private int skipped;
+    private int returned;
+    private TaskType lastType;
+    private int lastId;
+
+    TaskCursor(Source source, TaskQuery query, int limit) {
+        this.source = source;
+        this.query = query;
+        this.limit = limit;
+        this.offset = query.getAfterType() == null ? query.getOffset() : 0;
+    }
+
+    static Stream<Task> stream(Source source, TaskQuery query) {
+        TaskCursor cursor = new TaskCursor(source, query, query.getLimit());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Страница из не более чем limit задач; курсор без лимита заодно проверяет, есть ли продолжение
+    static TaskPage page(Source source, TaskQuery query) {
+        TaskCursor cursor = new TaskCursor(source, query, Integer.MAX_VALUE);
+        List<Task> tasks = new ArrayList<>(Math.min(query.getLimit(), 256));
+        while (tasks.size() < query.getLimit() && cursor.hasNext()) {
+            tasks.add(cursor.next());
+        }
+        String token = cursor.hasNext() ? TaskQuery.continuationToken(cursor.lastType, cursor.lastId) : null;
+        return new TaskPage(tasks, token);
+    }
+
+    // Обход по упорядоченным id (состав эпика, индекс статусов): следующий id ищется заново
+    // на каждом шаге, поэтому изменения во время обхода не ломают итератор; nextId возвращает 0 в конце
+    static Iterator<Task> ids(IntUnaryOperator nextId, IntFunction<? extends Task> lookup, int fromId) {
+        return new Iterator<>() {
+            private int from = fromId;
+            private Task next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && from > 0) {
+                    int id = nextId.applyAsInt(from);
+                    if (id == 0) {
+                        from = 0;
+                        break;
+                    }
+                    next = lookup.apply(id);
+                    from = id + 1;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next;
+                next = null;
+                return task;
+            }
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (returned >= limit) {
+            return false;
+        }
+        while (true) {
+            while (current == null || !current.hasNext()) {
+                if (!openNextType()) {
+                    return false;
+                }
+            }
+            Task task = current.next();
+            if (!query.matches(task)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            next = task;
+            return true;
+        }
+    }
+
+    @Override
+    public Task next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Task task = next;
+        next = null;
+        returned++;
+        lastType = currentType;
+        lastId = task.getId();
+        return task;
+    }
+
+    private boolean openNextType() {
+        while (typeIndex < ALL_TYPES.length) {
+            TaskType type = ALL_TYPES[typeIndex++];
+            if (query.getType() != null && query.getType() != type) {
+                continue;
+            }
+
+            int fromId = 1;
+            TaskType afterType = query.getAfterType();
+            if (afterType != null) {
+                if (type.ordinal() < afterType.ordinal()) {
+                    continue;
+                }
+                if (type == afterType) {
+                    if (query.getAfterId() == Integer.MAX_VALUE) {
+                        continue;
+                    }
+                    fromId = Math.max(query.getAfterId() + 1, 1);
+                }
+            }
+
+            currentType = type;
+            current = query.getEpicId() != 0 && type == TaskType.SUBTASK
+                    ? source.subtasksOf(query.getEpicId(), fromId)
+                    : source.from(type, query.getStatus(), fromId);
+            return true;
+        }
+        current = Collections.emptyIterator();
+        return false;
+    }
+}
@@ -0,0 +1,313 @@
+package manager;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+// Журнал изменений: каждая мутация дописывается в конец файла одной строкой.
+// flush() передаёт записи ОС, sync() дожидается, пока они дойдут до устройства
+public class TaskJournal implements Closeable {
+    private final File file;
+    private FileOutputStream out;
+    private CountingOutputStream counter;
+    private BufferedWriter writer;
+    private int records;
+    // Есть записи, ещё не сброшенные на устройство
+    private boolean unsynced;
+    // Файл создан этим журналом: запись о нём в каталоге тоже нужно сбросить
+    private boolean created;
+    // Получает число байт, дошедших до файла
+    private final LongConsumer bytesWritten;
+
+    public TaskJournal(File file) {
+        this(file, bytes -> { });
+    }
+
+    public TaskJournal(File file, LongConsumer bytesWritten) {
+        this.file = file;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int size() {
+        return records;
+    }
+
+    public void append(String record) {
+        try {
+            openWriter().write(record);
+            writer.newLine();
+            records++;
+            unsynced = true;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в журнал", e);
+        }
+    }
+
+    public void append(char[] record, int length) {
+        try {
+            openWriter().write(record, 0, length);
+            writer.newLine();
+            records++;
+            unsynced = true;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в журнал", e);
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        if (writer == null) {
+            created |= !file.exists();
+            out = new FileOutputStream(file, true);
+            counter = new CountingOutputStream(out);
+            writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8));
+        }
+        return writer;
+    }
+
+    // Передаёт дописанные записи в файл
+    public void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в журнал", e);
+        }
+        countFlushed();
+    }
+
+    // Как flush, но возвращается, только когда записи сброшены на устройство
+    public void sync() {
+        flush();
+        if (writer == null || !unsynced) {
+            return;
+        }
+        try {
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при сбросе журнала на диск", e);
+        }
+        if (created) {
+            syncDirectory(file);
+            created = false;
+        }
+        unsynced = false;
+    }
+
+    // Байты считаются по пути в файл, поэтому сброс не опрашивает размер файла
+    private void countFlushed() {
+        long count = counter.takeCount();
+        if (count > 0) {
+            bytesWritten.accept(count);
+        }
+    }
+
+    // Очищает журнал после того, как его содержимое попало в снимок
+    public void reset() {
+        close();
+        if (file.exists() && !file.delete()) {
+            throw new ManagerSaveException("Не удалось очистить журнал: " + file, null);
+        }
+        records = 0;
+        unsynced = false;
+        created = false;
+    }
+
+    // Атомарно заменяет всё содержимое журнала одной записью
+    public void rewrite(String record) {
+        close();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter tmpWriter = new BufferedWriter(new FileWriter(tmp, StandardCharsets.UTF_8))) {
+            tmpWriter.write(record);
+            tmpWriter.newLine();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в журнал", e);
+        }
+        long length = tmp.length();
+        replaceFile(tmp, file);
+        bytesWritten.accept(length);
+        records = 1;
+        unsynced = false;
+        created = false;
+    }
+
+    // Содержимое source сбрасывается на диск до переименования, а каталог - после,
+    // поэтому после сбоя на месте target окажется либо прежний файл, либо новый целиком
+    static void replaceFile(File source, File target) {
+        syncFile(source);
+        try {
+            try {
+                Files.move(source.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при замене файла " + target, e);
+        }
+        syncDirectory(target);
+    }
+
+    static void syncFile(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при сбросе файла на диск: " + file, e);
+        }
+    }
+
+    // Сбрасывает каталог файла, чтобы создание и переименование пережили сбой ОС.
+    // Не все системы позволяют открыть каталог (Windows) - там это не требуется
+    static void syncDirectory(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // каталог нельзя открыть или сбросить
+        }
+    }
+
+    // Возвращает количество прочитанных записей. Последняя строка без перевода строки или такая,
+    // которую handler не разобрал, - запись, недописанная из-за сбоя: файл обрезается до неё.
+    // Ошибка в любой более ранней строке - повреждение журнала
+    public int replay(Consumer<String> handler) {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        int count = 0;
+        // Конец последней применённой записи
+        long complete = 0;
+        boolean torn;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] chunk = new byte[1 << 16];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            // Целая строка, которая может оказаться последней, и её конец в файле
+            String held = null;
+            long heldEnd = 0;
+            long position = 0;
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    position++;
+                    if (chunk[i] != '\n') {
+                        line.write(chunk[i]);
+                        continue;
+                    }
+                    String record = line.toString(StandardCharsets.UTF_8);
+                    line.reset();
+                    if (record.endsWith("\r")) {
+                        record = record.substring(0, record.length() - 1);
+                    }
+                    if (record.isEmpty()) {
+                        continue;
+                    }
+                    if (held != null) {
+                        apply(handler, held, count);
+                        count++;
+                        complete = heldEnd;
+                    }
+                    held = record;
+                    heldEnd = position;
+                }
+            }
+
+            torn = line.size() > 0;
+            if (held != null && torn) {
+                apply(handler, held, count);
+                count++;
+                complete = heldEnd;
+            } else if (held != null) {
+                try {
+                    handler.accept(held);
+                    count++;
+                    complete = heldEnd;
+                } catch (RuntimeException e) {
+                    torn = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала", e);
+        }
+        if (torn) {
+            truncate(complete);
+        }
+        records = count;
+        return count;
+    }
+
+    private void apply(Consumer<String> handler, String record, int index) {
+        try {
+            handler.accept(record);
+        } catch (RuntimeException e) {
+            throw new ManagerSaveException("Повреждённая запись " + (index + 1) + " в журнале " + file, e);
+        }
+    }
+
+    private void truncate(long length) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при обрезке журнала " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+            countFlushed();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при закрытии журнала", e);
+        } finally {
+            writer = null;
+            counter = null;
+            out = null;
+        }
+    }
+
+    // Считает байты, переданные в файл, с прошлого takeCount()
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long takeCount() {
+            long taken = count;
+            count = 0;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package manager;
+
+import model.Task;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Неизменяемый список, склеенный из нескольких коллекций без копирования.
+// Обход идёт по исходным коллекциям; массив для доступа по индексу собирается только при первом get().
+final class TaskListView extends AbstractList<Task> {
+    private final List<Collection<? extends Task>> parts;
+    private final int size;
+    private Object[] elements;
+
+    TaskListView(List<Collection<? extends Task>> parts) {
+        this.parts = parts;
+        int total = 0;
+        for (Collection<? extends Task> part : parts) {
+            total += part.size();
+        }
+        this.size = total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " при размере " + size);
+        }
+        if (elements == null) {
+            Object[] collected = new Object[size];
+            int i = 0;
+            for (Collection<? extends Task> part : parts) {
+                for (Task task : part) {
+                    collected[i++] = task;
+                }
+            }
+            elements = collected;
+        }
+        return (Task) elements[index];
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private int part;
+            private Iterator<? extends Task> current = parts.isEmpty() ? null : parts.get(0).iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (current != null) {
+                    if (current.hasNext()) {
+                        return true;
+                    }
+                    current = ++part < parts.size() ? parts.get(part).iterator() : null;
+                }
+                return false;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package manager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Событие JFR на загрузку менеджера из файла: снимок, журнал и лог просмотров
+@Name("tasktracker.Load")
+@Label("Task Manager Load")
+@Category({"Task Tracker", "Persistence"})
+@Description("Загрузка задач из снимка и журнала")
+final class TaskLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    String file;
+
+    @Label("Format")
+    String format;
+
+    @Label("Tasks")
+    int taskCount;
+
+    @Label("Journal Records")
+    int journalRecords;
+
+    @Label("Parallel")
+    boolean parallel;
+}
@@ -0,0 +1,27 @@
+package manager;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Событие JFR на каждую полную запись снимка, чтобы сопоставлять всплески задержек с записью на диск
+@Name("tasktracker.SnapshotSave")
+@Label("Task Snapshot Save")
+@Category({"Task Tracker", "Persistence"})
+@Description("Полная перезапись файла задач")
+final class TaskSaveEvent extends jdk.jfr.Event {
+    @Label("File")
+    String file;
+
+    @Label("Format")
+    String format;
+
+    @Label("Tasks")
+    int taskCount;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+}
@@ -52,10 +52,20 @@ public class CustomLinkedList {
         // Очищаем ссылки удаленного узла
         node.setPrev(null);
         node.setNext(null);
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Самый давний узел
+    public Node getHead() {
+        return head;
     }
 
     public List<Task> getTasks() {
-        List<Task> tasks = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>(size);
         Node current = head;
 
         while (current != null) {
@@ -65,4 +75,24 @@ public class CustomLinkedList {
 
         return tasks;
     }
+
+    // Последние limit задач в том же порядке, что и getTasks(): копируется только хвост списка
+    public List<Task> getTasks(int limit) {
+        int count = Math.min(Math.max(limit, 0), size);
+        List<Task> tasks = new ArrayList<>(count);
+        if (count == 0) {
+            return tasks;
+        }
+
+        Node current = tail;
+        for (int i = 1; i < count; i++) {
+            current = current.getPrev();
+        }
+        while (current != null) {
+            tasks.add(current.getTask());
+            current = current.getNext();
+        }
+
+        return tasks;
+    }
 }
\ No newline at end of file
@@ -2,23 +2,68 @@ package model;
 
 import enums.Status;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 public class Epic extends Task {
-    protected List<Integer> subtaskIds;
+    protected IntArraySet subtaskIds;
+    // Количество подзадач эпика в каждом статусе, индекс - номер статуса
+    protected int[] subtaskStatusCounts;
 
     public Epic(String name, String description) {
         super(name, description, Status.NEW);
-        this.subtaskIds = new ArrayList<>();
+        this.subtaskIds = new IntArraySet();
+        this.subtaskStatusCounts = new int[Status.values().length];
     }
 
+    // Представление только для чтения; без упаковки - getSubtaskId(i) и forEachSubtaskId
     public List<Integer> getSubtaskIds() {
-        return subtaskIds;
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return subtaskIds.get(index);
+            }
+
+            @Override
+            public int size() {
+                return subtaskIds.size();
+            }
+        };
     }
 
     public void setSubtaskIds(List<Integer> subtaskIds) {
-        this.subtaskIds = subtaskIds;
+        this.subtaskIds.clear();
+        for (int subtaskId : subtaskIds) {
+            this.subtaskIds.add(subtaskId);
+        }
+    }
+
+    public int getSubtaskCount() {
+        return subtaskIds.size();
+    }
+
+    // Подзадачи упорядочены по возрастанию id
+    public int getSubtaskId(int index) {
+        return subtaskIds.get(index);
+    }
+
+    // Наименьший id подзадачи не меньше fromId или 0, если таких нет
+    public int nextSubtaskId(int fromId) {
+        int index = subtaskIds.indexOf(fromId);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < subtaskIds.size() ? subtaskIds.get(index) : 0;
+    }
+
+    public boolean containsSubtaskId(int subtaskId) {
+        return subtaskIds.contains(subtaskId);
+    }
+
+    public void forEachSubtaskId(IntConsumer action) {
+        subtaskIds.forEach(action);
     }
 
     public void clearSubtaskIds() {
@@ -33,6 +78,43 @@ public class Epic extends Task {
         subtaskIds.remove(subtaskId);
     }
 
+    public int getSubtaskStatusCount(Status status) {
+        return subtaskStatusCounts[status.ordinal()];
+    }
+
+    public void countSubtaskStatus(Status status, int delta) {
+        subtaskStatusCounts[status.ordinal()] += delta;
+    }
+
+    public void resetSubtaskStatusCounts() {
+        Arrays.fill(subtaskStatusCounts, 0);
+    }
+
+    // Переносит состав подзадач и счётчики статусов из другого экземпляра того же эпика
+    public void copySubtasksFrom(Epic other) {
+        if (other == this) {
+            return;
+        }
+        subtaskIds.copyFrom(other.subtaskIds);
+        System.arraycopy(other.subtaskStatusCounts, 0, subtaskStatusCounts, 0, subtaskStatusCounts.length);
+    }
+
+    // Статус по счётчикам: NEW, если подзадач нет или все новые, DONE, если все завершены
+    public Status calculateStatus() {
+        int total = 0;
+        for (int count : subtaskStatusCounts) {
+            total += count;
+        }
+
+        if (total == getSubtaskStatusCount(Status.NEW)) {
+            return Status.NEW;
+        } else if (total == getSubtaskStatusCount(Status.DONE)) {
+            return Status.DONE;
+        } else {
+            return Status.IN_PROGRESS;
+        }
+    }
+
     @Override
     public String toString() {
         return "Epic{" +
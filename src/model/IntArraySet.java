@@ -0,0 +1,273 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Множество int по возрастанию: значения лежат кусками до CHUNK_SIZE в отсортированных массивах,
+// поиск двоичный - сначала по кускам, потом внутри куска; идентификаторы хранятся без упаковки.
+// copyFrom() копирует только оглавление кусков, а сами куски становятся общими и копируются
+// при первом изменении, поэтому изменение копии стоит O(CHUNK_SIZE + число кусков), а не O(размер).
+// Новые идентификаторы обычно больше уже имеющихся, поэтому добавление чаще всего - запись в конец.
+public class IntArraySet {
+    private static final int CHUNK_SIZE = 256;
+    private static final int[] EMPTY = new int[0];
+    private static final int[][] NO_CHUNKS = new int[0][];
+    private static final boolean[] NO_OWNED = new boolean[0];
+
+    private int[][] chunks;
+    // ends[c] - сколько значений лежит в кусках 0..c
+    private int[] ends;
+    // Кусок не делится с другими множествами и может меняться на месте
+    private boolean[] owned;
+    private int chunkCount;
+    private int size;
+
+    public IntArraySet() {
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " при размере " + size);
+        }
+        int chunk = chunkOfIndex(index);
+        return chunks[chunk][index - start(chunk)];
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    // Позиция значения или -(точка вставки) - 1, как у Arrays.binarySearch
+    public int indexOf(int value) {
+        if (size == 0) {
+            return -1;
+        }
+        if (last(chunkCount - 1) < value) {
+            return -size - 1;
+        }
+        int chunk = chunkOfValue(value);
+        int from = start(chunk);
+        int position = Arrays.binarySearch(chunks[chunk], 0, ends[chunk] - from, value);
+        return position >= 0 ? from + position : position - from;
+    }
+
+    public boolean add(int value) {
+        int chunk;
+        int insertion;
+        if (size == 0) {
+            appendChunk();
+            chunk = 0;
+            insertion = 0;
+        } else {
+            chunk = chunkOfValue(value);
+            int length = length(chunk);
+            int position = Arrays.binarySearch(chunks[chunk], 0, length, value);
+            if (position >= 0) {
+                return false;
+            }
+            insertion = -position - 1;
+            if (length == CHUNK_SIZE) {
+                if (chunk == chunkCount - 1 && insertion == length) {
+                    appendChunk();
+                    chunk++;
+                    insertion = 0;
+                } else {
+                    split(chunk);
+                    if (insertion > CHUNK_SIZE / 2) {
+                        chunk++;
+                        insertion -= CHUNK_SIZE / 2;
+                    }
+                }
+            }
+        }
+
+        int length = length(chunk);
+        int[] values = writable(chunk, length + 1);
+        System.arraycopy(values, insertion, values, insertion + 1, length - insertion);
+        values[insertion] = value;
+        for (int c = chunk; c < chunkCount; c++) {
+            ends[c]++;
+        }
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        int chunk = chunkOfIndex(index);
+        int length = length(chunk);
+        if (length == 1) {
+            removeChunk(chunk);
+        } else {
+            int position = index - start(chunk);
+            int[] values = writable(chunk, length);
+            System.arraycopy(values, position + 1, values, position, length - position - 1);
+        }
+        for (int c = chunk; c < chunkCount; c++) {
+            ends[c]--;
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        chunks = NO_CHUNKS;
+        ends = EMPTY;
+        owned = NO_OWNED;
+        chunkCount = 0;
+        size = 0;
+    }
+
+    // Куски становятся общими для обоих множеств, поэтому other тоже теряет право менять их на месте
+    public void copyFrom(IntArraySet other) {
+        if (other == this) {
+            return;
+        }
+        if (other.size == 0) {
+            clear();
+            return;
+        }
+        chunks = Arrays.copyOf(other.chunks, other.chunkCount);
+        ends = Arrays.copyOf(other.ends, other.chunkCount);
+        owned = new boolean[other.chunkCount];
+        chunkCount = other.chunkCount;
+        size = other.size;
+        Arrays.fill(other.owned, 0, other.chunkCount, false);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int c = 0; c < chunkCount; c++) {
+            int[] values = chunks[c];
+            for (int i = 0, length = length(c); i < length; i++) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        for (int c = 0; c < chunkCount; c++) {
+            System.arraycopy(chunks[c], 0, result, start(c), length(c));
+        }
+        return result;
+    }
+
+    // ========== Куски ==========
+
+    private int start(int chunk) {
+        return chunk == 0 ? 0 : ends[chunk - 1];
+    }
+
+    private int length(int chunk) {
+        return ends[chunk] - start(chunk);
+    }
+
+    private int last(int chunk) {
+        return chunks[chunk][length(chunk) - 1];
+    }
+
+    // Кусок, в котором лежит позиция index
+    private int chunkOfIndex(int index) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Первый кусок, последнее значение которого не меньше value, иначе последний
+    private int chunkOfValue(int value) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (last(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Массив куска, который можно менять на месте и в котором поместится capacity значений
+    private int[] writable(int chunk, int capacity) {
+        int[] values = chunks[chunk];
+        if (!owned[chunk] || values.length < capacity) {
+            int length = length(chunk);
+            int grown = Math.min(CHUNK_SIZE, Math.max(Math.max(4, capacity), length + (length >> 1)));
+            values = Arrays.copyOf(values, grown);
+            chunks[chunk] = values;
+            owned[chunk] = true;
+        }
+        return values;
+    }
+
+    private void appendChunk() {
+        insertChunk(chunkCount, EMPTY, size);
+    }
+
+    // Правая половина полного куска переезжает в новый кусок, левая остаётся в прежнем массиве
+    private void split(int chunk) {
+        int from = start(chunk);
+        int half = CHUNK_SIZE / 2;
+        int[] right = Arrays.copyOfRange(chunks[chunk], half, CHUNK_SIZE);
+        ends[chunk] = from + half;
+        insertChunk(chunk + 1, right, from + CHUNK_SIZE);
+        owned[chunk + 1] = true;
+    }
+
+    private void insertChunk(int at, int[] values, int end) {
+        if (chunkCount == chunks.length) {
+            int capacity = chunkCount + Math.max(1, chunkCount >> 1);
+            chunks = Arrays.copyOf(chunks, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            owned = Arrays.copyOf(owned, capacity);
+        }
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        System.arraycopy(ends, at, ends, at + 1, chunkCount - at);
+        System.arraycopy(owned, at, owned, at + 1, chunkCount - at);
+        chunks[at] = values;
+        ends[at] = end;
+        owned[at] = false;
+        chunkCount++;
+    }
+
+    private void removeChunk(int chunk) {
+        System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+        System.arraycopy(ends, chunk + 1, ends, chunk, chunkCount - chunk - 1);
+        System.arraycopy(owned, chunk + 1, owned, chunk, chunkCount - chunk - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(value -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(value);
+        });
+        return sb.append(']').toString();
+    }
+}
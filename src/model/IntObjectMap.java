@@ -0,0 +1,284 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+// Словарь с ключами int на открытой адресации с линейным пробированием:
+// ключи лежат в int[], значения в Object[], без упаковки ключей и узлов на каждую запись.
+// Удаление сдвигает следующие записи назад, поэтому «надгробий» нет.
+public class IntObjectMap<V> {
+    private static final int FREE_KEY = 0;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    // Ключ 0 занят под пустую ячейку, его значение хранится отдельно
+    private boolean hasFreeKey;
+    private Object freeKeyValue;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? (V) freeKeyValue : null;
+        }
+        int pos = slot(key, mask);
+        int current;
+        while ((current = keys[pos]) != FREE_KEY) {
+            if (current == key) {
+                return (V) values[pos];
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        int pos = slot(key, mask);
+        int current;
+        while ((current = keys[pos]) != FREE_KEY) {
+            if (current == key) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V previous = (V) freeKeyValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+
+        int pos = slot(key, mask);
+        int current;
+        while ((current = keys[pos]) != FREE_KEY) {
+            if (current == key) {
+                V previous = (V) values[pos];
+                values[pos] = value;
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public void putAll(IntObjectMap<? extends V> other) {
+        if (other.hasFreeKey) {
+            put(FREE_KEY, other.freeValue());
+        }
+        int[] otherKeys = other.keys;
+        Object[] otherValues = other.values;
+        for (int i = 0; i < otherKeys.length; i++) {
+            if (otherKeys[i] != FREE_KEY) {
+                @SuppressWarnings("unchecked")
+                V value = (V) otherValues[i];
+                put(otherKeys[i], value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V freeValue() {
+        return (V) freeKeyValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return null;
+            }
+            V previous = (V) freeKeyValue;
+            hasFreeKey = false;
+            freeKeyValue = null;
+            size--;
+            return previous;
+        }
+
+        int pos = slot(key, mask);
+        int current;
+        while ((current = keys[pos]) != FREE_KEY) {
+            if (current == key) {
+                V previous = (V) values[pos];
+                size--;
+                shiftKeys(pos);
+                return previous;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return null;
+    }
+
+    // Сдвигает назад записи, которые иначе стали бы недостижимы после освобождения ячейки pos
+    private void shiftKeys(int pos) {
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            int current;
+            while (true) {
+                current = keys[pos];
+                if (current == FREE_KEY) {
+                    keys[last] = FREE_KEY;
+                    values[last] = null;
+                    return;
+                }
+                int home = slot(current, mask);
+                if (last <= pos ? last >= home || home > pos : last >= home && home > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key == FREE_KEY) {
+                continue;
+            }
+            int pos = slot(key, mask);
+            while (keys[pos] != FREE_KEY) {
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = key;
+            values[pos] = oldValues[i];
+        }
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        allocate(MIN_CAPACITY);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        size = 0;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        if (hasFreeKey) {
+            action.accept(FREE_KEY);
+        }
+        for (int key : keys) {
+            if (key != FREE_KEY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    // Живое представление значений без копирования
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V at(int slot) {
+                        return slot < 0 ? (V) freeKeyValue : (V) values[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Обходит занятые ячейки; слот -1 означает значение ключа 0
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private int next = hasFreeKey ? -1 : advance(0);
+
+        abstract T at(int slot);
+
+        private int advance(int from) {
+            int slot = from;
+            while (slot < keys.length && keys[slot] == FREE_KEY) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = at(next);
+            next = advance(next + 1);
+            return value;
+        }
+    }
+}
@@ -4,11 +4,18 @@ public class Node {
     private Task task;
     private Node prev;
     private Node next;
+    // Время просмотра по System.nanoTime(), по нему история вытесняет устаревшие записи
+    private long viewedAt;
 
     public Node(Task task) {
         this.task = task;
     }
 
+    public Node(Task task, long viewedAt) {
+        this.task = task;
+        this.viewedAt = viewedAt;
+    }
+
     public Task getTask() {
         return task;
     }
@@ -17,6 +24,10 @@ public class Node {
         this.task = task;
     }
 
+    public long getViewedAt() {
+        return viewedAt;
+    }
+
     public Node getPrev() {
         return prev;
     }
@@ -0,0 +1,77 @@
+package model;
+
+// Снимок метрик одной операции менеджера: количество вызовов, ошибки, пропускная способность
+// и перцентили задержки в микросекундах
+public class OperationStats {
+    private final String operation;
+    private final long count;
+    private final long errors;
+    private final double throughputPerSecond;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    public OperationStats(String operation, long errors, double elapsedSeconds, LatencyHistogram latency) {
+        this.operation = operation;
+        this.count = latency.getCount();
+        this.errors = errors;
+        this.throughputPerSecond = elapsedSeconds > 0 ? count / elapsedSeconds : 0;
+        this.meanMicros = latency.getMeanNanos() / 1000.0;
+        this.p50Micros = latency.getPercentileNanos(0.5) / 1000.0;
+        this.p99Micros = latency.getPercentileNanos(0.99) / 1000.0;
+        this.p999Micros = latency.getPercentileNanos(0.999) / 1000.0;
+        this.maxMicros = latency.getMaxNanos() / 1000.0;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getThroughputPerSecond() {
+        return throughputPerSecond;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationStats{" +
+                "operation='" + operation + '\'' +
+                ", count=" + count +
+                ", errors=" + errors +
+                ", throughputPerSecond=" + throughputPerSecond +
+                ", p50Micros=" + p50Micros +
+                ", p99Micros=" + p99Micros +
+                ", p999Micros=" + p999Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
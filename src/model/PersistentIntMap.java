@@ -0,0 +1,447 @@
+package model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+// Словарь с ключами int на префиксном дереве с битовыми масками узлов (HAMT без хеширования:
+// ключ сам задаёт путь по 5 бит на уровень, старшие биты сверху, поэтому обход идёт по возрастанию ключей,
+// отрицательные ключи - после неотрицательных).
+// snapshot() за O(1) отдаёт неизменяемую версию: после него изменения копируют только узлы на своём пути,
+// а остальные узлы остаются общими. Пока снимков нет, узлы меняются на месте.
+// Изменения и snapshot() синхронизированы на словаре, поэтому снимок можно взять из другого потока,
+// пока владелец пишет: читатель ждёт только создания снимка, а узлы снимка после этого не меняются.
+// Остальные методы чтения живого словаря - только для потока владельца.
+public class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int MAX_SHIFT = 30;
+
+    private Node root;
+    private int shift;
+    private int size;
+    // Узлы с этой меткой принадлежат только текущей версии и могут меняться на месте
+    private Object edit = new Object();
+    private Snapshot<V> snapshot;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(int key) {
+        return lookup(root, shift, key);
+    }
+
+    public boolean containsKey(int key) {
+        return find(root, shift, key) != null;
+    }
+
+    public synchronized V put(int key, V value) {
+        snapshot = null;
+        if (root == null) {
+            shift = shiftFor(key);
+            root = new Node(edit);
+        }
+        while (!fits(key, shift)) {
+            Node grown = new Node(edit);
+            grown.insert(0, 1, root);
+            root = grown;
+            shift += BITS;
+        }
+
+        root = editable(root);
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = 1 << ((key >>> level) & 31);
+            int position = Integer.bitCount(node.bitmap & (bit - 1));
+            boolean present = (node.bitmap & bit) != 0;
+
+            if (level == 0) {
+                if (present) {
+                    @SuppressWarnings("unchecked")
+                    V previous = (V) node.slots[position];
+                    node.slots[position] = value;
+                    return previous;
+                }
+                node.insert(position, bit, value);
+                size++;
+                return null;
+            }
+
+            Node child;
+            if (present) {
+                child = editable((Node) node.slots[position]);
+                node.slots[position] = child;
+            } else {
+                child = new Node(edit);
+                node.insert(position, bit, child);
+            }
+            node = child;
+        }
+    }
+
+    public synchronized V remove(int key) {
+        if (find(root, shift, key) == null) {
+            return null;
+        }
+        snapshot = null;
+
+        // Путь от корня до листа, чтобы убрать опустевшие узлы
+        Node[] path = new Node[MAX_SHIFT / BITS + 1];
+        int depth = 0;
+        root = editable(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            path[depth++] = node;
+            int bit = 1 << ((key >>> level) & 31);
+            int position = Integer.bitCount(node.bitmap & (bit - 1));
+            Node child = editable((Node) node.slots[position]);
+            node.slots[position] = child;
+            node = child;
+        }
+
+        int bit = 1 << (key & 31);
+        @SuppressWarnings("unchecked")
+        V previous = (V) node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+        node.delete(bit);
+        size--;
+
+        for (int level = BITS; node.bitmap == 0 && depth > 0; level += BITS) {
+            node = path[--depth];
+            node.delete(1 << ((key >>> level) & 31));
+        }
+        if (size == 0) {
+            root = null;
+            shift = 0;
+        }
+        return previous;
+    }
+
+    public synchronized void clear() {
+        snapshot = null;
+        root = null;
+        shift = 0;
+        size = 0;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        EntryIterator iterator = new EntryIterator(root, shift, 0);
+        while (iterator.advance()) {
+            action.accept(iterator.key);
+        }
+    }
+
+    // Живое представление значений без копирования, по возрастанию ключей
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(root, shift, 0);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Неизменяемая версия текущего содержимого; пока словарь не менялся, возвращается тот же снимок
+    public synchronized Snapshot<V> snapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot<>(root, shift, size);
+            edit = new Object();
+        }
+        return snapshot;
+    }
+
+    // Возвращает словарь к содержимому снимка за O(1): узлы снимка неизменяемы, поэтому их можно взять как есть
+    public synchronized void restore(Snapshot<V> version) {
+        root = version.root;
+        shift = version.shift;
+        size = version.size;
+        snapshot = version;
+        edit = new Object();
+    }
+
+    private Node editable(Node node) {
+        return node.edit == edit ? node : node.copy(edit);
+    }
+
+    private static boolean fits(int key, int shift) {
+        return shift >= MAX_SHIFT || key >>> (shift + BITS) == 0;
+    }
+
+    private static int shiftFor(int key) {
+        int shift = 0;
+        while (!fits(key, shift)) {
+            shift += BITS;
+        }
+        return shift;
+    }
+
+    // Лист, в котором лежит ключ, или null
+    private static Node find(Node root, int shift, int key) {
+        if (root == null || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = 1 << ((key >>> level) & 31);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            if (level == 0) {
+                return node;
+            }
+            node = (Node) node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V lookup(Node root, int shift, int key) {
+        Node leaf = find(root, shift, key);
+        if (leaf == null) {
+            return null;
+        }
+        int bit = 1 << (key & 31);
+        return (V) leaf.slots[Integer.bitCount(leaf.bitmap & (bit - 1))];
+    }
+
+    // Узел хранит только занятые ячейки: позиция в slots - число установленных бит маски левее
+    private static final class Node {
+        private final Object edit;
+        private int bitmap;
+        private Object[] slots;
+
+        Node(Object edit) {
+            this.edit = edit;
+            this.slots = new Object[2];
+        }
+
+        private Node(Object edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Node copy(Object edit) {
+            Object[] copied = new Object[Math.max(2, slots.length)];
+            System.arraycopy(slots, 0, copied, 0, Integer.bitCount(bitmap));
+            return new Node(edit, bitmap, copied);
+        }
+
+        void insert(int position, int bit, Object value) {
+            int count = Integer.bitCount(bitmap);
+            if (count == slots.length) {
+                Object[] grown = new Object[Math.min(32, count * 2)];
+                System.arraycopy(slots, 0, grown, 0, count);
+                slots = grown;
+            }
+            System.arraycopy(slots, position, slots, position + 1, count - position);
+            slots[position] = value;
+            bitmap |= bit;
+        }
+
+        void delete(int bit) {
+            int count = Integer.bitCount(bitmap);
+            int position = Integer.bitCount(bitmap & (bit - 1));
+            System.arraycopy(slots, position + 1, slots, position, count - position - 1);
+            slots[count - 1] = null;
+            bitmap &= ~bit;
+        }
+    }
+
+    // Обход листьев по возрастанию ключей со стеком по уровням дерева
+    private static class EntryIterator {
+        private final Node[] nodes = new Node[MAX_SHIFT / BITS + 1];
+        private final int[] remaining = new int[nodes.length];
+        private final int[] positions = new int[nodes.length];
+        private final int[] prefixes = new int[nodes.length];
+        private final int leafDepth;
+        private int depth;
+        int key;
+        Object value;
+
+        // Начинает с первого ключа не меньше fromKey (в беззнаковом порядке), спускаясь по его пути
+        EntryIterator(Node root, int shift, int fromKey) {
+            this.leafDepth = shift / BITS;
+            this.depth = -1;
+            if (root == null || !fits(fromKey, shift)) {
+                return;
+            }
+
+            Node node = root;
+            int prefix = 0;
+            for (int level = shift; ; level -= BITS) {
+                int index = (fromKey >>> level) & 31;
+                int below = node.bitmap & ((1 << index) - 1);
+                depth++;
+                nodes[depth] = node;
+                prefixes[depth] = prefix;
+                positions[depth] = Integer.bitCount(below);
+                remaining[depth] = node.bitmap & ~below;
+
+                // Если ветки fromKey нет или это лист, дальше подходят все ключи справа
+                if (level == 0 || (node.bitmap & (1 << index)) == 0) {
+                    return;
+                }
+                remaining[depth] &= ~(1 << index);
+                positions[depth]++;
+                node = (Node) node.slots[positions[depth] - 1];
+                prefix = (prefix << BITS) | index;
+            }
+        }
+
+        // Переходит к следующей записи; false, если записей больше нет
+        boolean advance() {
+            while (depth >= 0) {
+                int bits = remaining[depth];
+                if (bits == 0) {
+                    depth--;
+                    continue;
+                }
+                int index = Integer.numberOfTrailingZeros(bits);
+                remaining[depth] = bits & (bits - 1);
+                Object slot = nodes[depth].slots[positions[depth]++];
+                int prefix = (prefixes[depth] << BITS) | index;
+
+                if (depth == leafDepth) {
+                    key = prefix;
+                    value = slot;
+                    return true;
+                }
+                Node child = (Node) slot;
+                depth++;
+                nodes[depth] = child;
+                remaining[depth] = child.bitmap;
+                positions[depth] = 0;
+                prefixes[depth] = prefix;
+            }
+            return false;
+        }
+    }
+
+    private static class ValueIterator<V> implements Iterator<V> {
+        private final EntryIterator entries;
+        private boolean ready;
+        private boolean hasNext;
+
+        ValueIterator(Node root, int shift, int fromKey) {
+            this.entries = new EntryIterator(root, shift, fromKey);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                hasNext = entries.advance();
+                ready = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return (V) entries.value;
+        }
+    }
+
+    // Неизменяемый снимок: его узлы больше никогда не меняются на месте
+    public static final class Snapshot<V> extends AbstractMap<Integer, V> {
+        private final Node root;
+        private final int shift;
+        private final int size;
+
+        private Snapshot(Node root, int shift, int size) {
+            this.root = root;
+            this.shift = shift;
+            this.size = size;
+        }
+
+        // Значения с ключами не меньше fromKey по возрастанию, без обхода меньших ключей
+        public Iterator<V> valuesFrom(int fromKey) {
+            return new ValueIterator<>(root, shift, fromKey);
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? PersistentIntMap.<V>lookup(root, shift, (Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && find(root, shift, (Integer) key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new ValueIterator<>(root, shift, 0);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    EntryIterator entries = new EntryIterator(root, shift, 0);
+                    return new Iterator<>() {
+                        private boolean ready;
+                        private boolean hasNext;
+
+                        @Override
+                        public boolean hasNext() {
+                            if (!ready) {
+                                hasNext = entries.advance();
+                                ready = true;
+                            }
+                            return hasNext;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Entry<Integer, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            ready = false;
+                            return new SimpleImmutableEntry<>(entries.key, (V) entries.value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package model;
+
+import java.util.List;
+
+// Страница результата запроса и токен для следующей страницы (null, если страница последняя)
+public class TaskPage {
+    private final List<Task> tasks;
+    private final String continuationToken;
+
+    public TaskPage(List<Task> tasks, String continuationToken) {
+        this.tasks = tasks;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskPage{" +
+                "tasks=" + tasks.size() +
+                ", continuationToken='" + continuationToken + '\'' +
+                '}';
+    }
+}
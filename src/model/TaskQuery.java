@@ -0,0 +1,136 @@
+package model;
+
+import enums.Status;
+import enums.TaskType;
+
+// Неизменяемый запрос к задачам: фильтры по типу, статусу и эпику, смещение, лимит и токен продолжения.
+// Каждый метод возвращает новый запрос, исходный не меняется.
+public class TaskQuery {
+    private static final TaskQuery ALL = new TaskQuery(null, null, 0, 0, Integer.MAX_VALUE, null, 0);
+
+    private final TaskType type;
+    private final Status status;
+    private final int epicId;
+    private final int offset;
+    private final int limit;
+    // Позиция продолжения: тип и id последней выданной задачи
+    private final TaskType afterType;
+    private final int afterId;
+
+    private TaskQuery(TaskType type, Status status, int epicId, int offset, int limit,
+                      TaskType afterType, int afterId) {
+        this.type = type;
+        this.status = status;
+        this.epicId = epicId;
+        this.offset = offset;
+        this.limit = limit;
+        this.afterType = afterType;
+        this.afterId = afterId;
+    }
+
+    // Все задачи: сначала обычные, затем эпики, затем подзадачи, внутри типа по возрастанию id
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    public TaskQuery ofType(TaskType type) {
+        return new TaskQuery(type, status, epicId, offset, limit, afterType, afterId);
+    }
+
+    public TaskQuery withStatus(Status status) {
+        return new TaskQuery(type, status, epicId, offset, limit, afterType, afterId);
+    }
+
+    // Подзадачи одного эпика
+    public TaskQuery inEpic(int epicId) {
+        if (epicId <= 0) {
+            throw new IllegalArgumentException("Некорректный id эпика: " + epicId);
+        }
+        return new TaskQuery(TaskType.SUBTASK, status, epicId, offset, limit, afterType, afterId);
+    }
+
+    // Пропускает первые offset задач обхода; при продолжении по токену не применяется,
+    // поэтому следующие страницы можно запрашивать с теми же параметрами и токеном
+    public TaskQuery skip(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Смещение не может быть отрицательным: " + offset);
+        }
+        return new TaskQuery(type, status, epicId, offset, limit, afterType, afterId);
+    }
+
+    public TaskQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Лимит должен быть положительным: " + limit);
+        }
+        return new TaskQuery(type, status, epicId, offset, limit, afterType, afterId);
+    }
+
+    // Продолжение с места, где закончилась предыдущая страница
+    public TaskQuery after(String continuationToken) {
+        if (continuationToken == null) {
+            return new TaskQuery(type, status, epicId, offset, limit, null, 0);
+        }
+        int separator = continuationToken.indexOf(':');
+        try {
+            TaskType afterType = TaskType.valueOf(continuationToken.substring(0, Math.max(separator, 0)));
+            int afterId = Integer.parseInt(continuationToken.substring(separator + 1));
+            return new TaskQuery(type, status, epicId, offset, limit, afterType, afterId);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный токен продолжения: " + continuationToken, e);
+        }
+    }
+
+    // Токен, с которого продолжится обход после указанной задачи
+    public static String continuationToken(TaskType type, int id) {
+        return type + ":" + id;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // Тип последней выданной задачи или null, если обход с начала
+    public TaskType getAfterType() {
+        return afterType;
+    }
+
+    public int getAfterId() {
+        return afterId;
+    }
+
+    // Подходит ли задача под фильтры статуса и эпика; тип проверяет источник
+    public boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        return epicId == 0 || task instanceof Subtask && ((Subtask) task).getEpicId() == epicId;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskQuery{" +
+                "type=" + type +
+                ", status=" + status +
+                ", epicId=" + epicId +
+                ", offset=" + offset +
+                ", limit=" + limit +
+                ", after=" + (afterType == null ? null : continuationToken(afterType, afterId)) +
+                '}';
+    }
+}
@@ -0,0 +1,85 @@
+package http;
+
+import interfaces.TaskManager;
+import manager.Managers;
+import model.Epic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpTaskServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TaskManager manager;
+    private HttpTaskServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        manager = Managers.getConcurrent();
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Пакет с подзадачей несуществующего эпика отклоняется целиком, как и одиночное создание
+    @Test
+    void subtaskBatchWithMissingEpicIsRejected() throws IOException, InterruptedException {
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        String subtask = "{\"name\":\"Подзадача\",\"description\":\"Описание\",\"status\":\"NEW\",\"epicId\":%d}";
+
+        HttpResponse<String> single = post("/tasks/subtask", String.format(subtask, 999));
+        HttpResponse<String> batch = post("/tasks/subtask/batch",
+                "[" + String.format(subtask, epic.getId()) + "," + String.format(subtask, 999) + "]");
+
+        assertEquals(400, single.statusCode());
+        assertEquals(400, batch.statusCode());
+        assertTrue(batch.body().contains("999"), batch.body());
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertEquals(0, manager.getEpicById(epic.getId()).getSubtaskCount());
+
+        HttpResponse<String> created = post("/tasks/subtask/batch", "[" + String.format(subtask, epic.getId()) + "]");
+        assertEquals(201, created.statusCode());
+        assertEquals(1, manager.getSubtasks().size());
+    }
+
+    // Внутренности исключения не уходят клиенту
+    @Test
+    void internalErrorHidesDetails() throws IOException, InterruptedException {
+        server.stop(0);
+        TaskManager failing = (TaskManager) Proxy.newProxyInstance(
+                TaskManager.class.getClassLoader(), new Class<?>[]{TaskManager.class}, (proxy, method, args) -> {
+                    throw new IllegalStateException("секретная деталь");
+                });
+        server = new HttpTaskServer(failing, 0);
+        server.start();
+
+        HttpResponse<String> response = post("/tasks/task",
+                "{\"name\":\"Задача\",\"description\":\"Описание\",\"status\":\"NEW\"}");
+
+        assertEquals(500, response.statusCode());
+        assertFalse(response.body().contains("секретная деталь"), response.body());
+        assertFalse(response.body().contains("IllegalStateException"), response.body());
+    }
+}
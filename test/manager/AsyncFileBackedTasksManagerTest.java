@@ -0,0 +1,53 @@
+package manager;
+
+import enums.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncFileBackedTasksManagerTest {
+
+    @TempDir
+    File directory;
+
+    // Неудачная запись не откатывает мутацию, но закрывает менеджер до успешного flush():
+    // повтор мутации в это время отклоняется и дубликата не создаёт
+    @Test
+    void failedWriteRejectsOperationsUntilFlush() throws IOException {
+        File file = new File(directory, "tasks.csv");
+        AsyncFileBackedTasksManager manager = new AsyncFileBackedTasksManager(
+                new FileBackedTasksManager(file, 0, DurabilityPolicy.manual()));
+        manager.createTask(new Task("Первая", "Описание", Status.NEW)).join();
+
+        // Каталог на месте временного файла снимка не даёт записать снимок
+        File blocker = new File(file.getPath() + ".tmp");
+        assertTrue(new File(blocker, "занято").mkdirs());
+        Task second = new Task("Вторая", "Описание", Status.NEW);
+        ExecutionException unsaved = assertThrows(ExecutionException.class, () -> manager.createTask(second).get());
+        assertInstanceOf(ManagerSaveException.class, unsaved.getCause());
+
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> manager.createTask(new Task("Вторая", "Описание", Status.NEW)).get());
+        assertInstanceOf(IllegalStateException.class, rejected.getCause());
+        assertThrows(ExecutionException.class, () -> manager.getTasks().get());
+        assertThrows(ExecutionException.class, () -> manager.flush().get());
+
+        assertTrue(new File(blocker, "занято").delete() && blocker.delete());
+        manager.flush().join();
+        assertNull(manager.getFailure());
+        assertEquals(2, manager.getTasks().join().size());
+        manager.close();
+
+        assertEquals(2, FileBackedTasksManager.loadFromFile(file).getTasks().size());
+    }
+}
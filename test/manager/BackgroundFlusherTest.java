@@ -0,0 +1,113 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackgroundFlusherTest {
+
+    // Поток записи занят, очередь полна: close() должен отпустить ждущего в submit()
+    @Test
+    void closeReleasesProducerWaitingForQueue() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        BackgroundFlusher flusher = new BackgroundFlusher(DurabilityPolicy.async(1), () -> {
+            flushing.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test-flusher");
+
+        flusher.submit();
+        assertTrue(flushing.await(10, TimeUnit.SECONDS));
+        flusher.submit();
+
+        CountDownLatch returned = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            flusher.submit();
+            returned.countDown();
+        });
+        producer.start();
+        assertFalse(returned.await(200, TimeUnit.MILLISECONDS));
+
+        flusher.close();
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        producer.join();
+    }
+
+    // Ошибка не бросается ни мутациям, ни чтениям: поток повторяет запись сам, пока она не пройдёт
+    @Test
+    void failedWriteIsRetriedWithoutThrowing() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        BackgroundFlusher flusher = new BackgroundFlusher(DurabilityPolicy.async(16), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ManagerSaveException("Диск недоступен", null);
+            }
+            written.countDown();
+        }, "test-flusher");
+
+        try {
+            assertDoesNotThrow(flusher::submit);
+            while (flusher.getFailure() == null && written.getCount() > 0) {
+                Thread.sleep(5);
+            }
+            assertDoesNotThrow(flusher::submit);
+            assertDoesNotThrow(flusher::touch);
+
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertNull(flusher.getFailure());
+            assertTrue(attempts.get() >= 3);
+        } finally {
+            flusher.close();
+        }
+    }
+
+    @Test
+    void groupCommitRetriesWithoutNewMutations() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        BackgroundFlusher flusher = new BackgroundFlusher(DurabilityPolicy.groupCommit(1, 10), () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ManagerSaveException("Диск недоступен", null);
+            }
+            written.countDown();
+        }, "test-flusher");
+
+        try {
+            flusher.submit();
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            assertEquals(2, attempts.get());
+        } finally {
+            flusher.close();
+        }
+    }
+
+    @Test
+    void clearFailureAfterOwnerWroteEverything() throws InterruptedException {
+        BackgroundFlusher flusher = new BackgroundFlusher(DurabilityPolicy.async(16), () -> {
+            throw new ManagerSaveException("Диск недоступен", null);
+        }, "test-flusher");
+
+        try {
+            flusher.submit();
+            while (flusher.getFailure() == null) {
+                Thread.sleep(5);
+            }
+            flusher.clearFailure();
+            assertNull(flusher.getFailure());
+        } finally {
+            flusher.close();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchRollbackTest {
+
+    @TempDir
+    File directory;
+
+    // Задача 1, эпик 2 с подзадачами 3 (DONE) и 4 (NEW)
+    private static void fill(TaskManager manager) {
+        manager.createTask(new Task("Созвон", "Еженедельный", Status.NEW));
+        Epic epic = new Epic("Переезд", "Квартира");
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask("Коробки", "Купить", Status.DONE, epic.getId()));
+        manager.createSubtask(new Subtask("Грузчики", "Заказать", Status.NEW, epic.getId()));
+    }
+
+    // Хранилища, статусы, состав и счётчики эпиков, индекс статусов и индекс слов
+    private static List<String> describe(TaskManager manager) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            String line = task.getClass().getSimpleName() + "," + task.getId() + "," + task.getName() + ","
+                    + task.getStatus();
+            if (task instanceof Epic) {
+                Epic epic = (Epic) task;
+                line += "," + epic.getSubtaskIds();
+                for (Status status : Status.values()) {
+                    line += "," + epic.getSubtaskStatusCount(status);
+                }
+            }
+            lines.add(line);
+        }
+        for (TaskType type : TaskType.values()) {
+            for (Status status : Status.values()) {
+                lines.add(type + "," + status + "," + manager.countByStatus(type, status) + ","
+                        + ids(manager.getTasksByStatus(type, status)));
+            }
+        }
+        for (String query : new String[]{"созвон", "коробки", "грузчики", "новая", "переезд"}) {
+            lines.add(query + "," + ids(manager.search(query)));
+        }
+        return lines;
+    }
+
+    private static List<Integer> ids(List<? extends Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    // Исключение посреди пакета: все изменения до него откатываются
+    private static void failHalfway(TaskManager manager) {
+        assertThrows(IllegalStateException.class, () -> manager.batch(batch -> {
+            Subtask moved = new Subtask("Грузчики", "Заказать", Status.DONE, 2);
+            moved.setId(4);
+            batch.updateSubtask(moved);
+            batch.deleteSubtaskById(3);
+            batch.createSubtask(new Subtask("Новая подзадача", "", Status.IN_PROGRESS, 2));
+            batch.deleteTaskById(1);
+            batch.createTask(new Task("Новая", "Задача", Status.DONE));
+            batch.createEpic(new Epic("Новый эпик", ""));
+            throw new IllegalStateException("Сбой посреди пакета");
+        }));
+    }
+
+    private static void assertRolledBack(TaskManager manager, List<String> before) {
+        assertEquals(before, describe(manager));
+        Task next = new Task("Следующая", "", Status.NEW);
+        manager.createTask(next);
+        assertEquals(5, next.getId(), "nextId не откатился");
+    }
+
+    @Test
+    void inMemoryBatchRollsBackEverything() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        fill(manager);
+        List<String> before = describe(manager);
+        assertEquals(Status.IN_PROGRESS, manager.getEpics().get(2).getStatus());
+
+        failHalfway(manager);
+
+        assertRolledBack(manager, before);
+    }
+
+    // Откат не пишет файл ни разу, успешный пакет - ровно один раз, и в журнальном режиме тоже
+    @Test
+    void fileBackedBatchWritesOnceOrNotAtAll() {
+        for (int compactionThreshold : new int[]{0, 100}) {
+            File file = new File(directory, "tasks-" + compactionThreshold + ".csv");
+            FileBackedTasksManager manager = new FileBackedTasksManager(file, compactionThreshold);
+            fill(manager);
+            List<String> before = describe(manager);
+            long saves = manager.getPersistenceMetrics().getSaveLatency().getCount();
+
+            failHalfway(manager);
+            assertEquals(saves, manager.getPersistenceMetrics().getSaveLatency().getCount());
+            assertEquals(before, describe(manager));
+            assertEquals(before, describe(FileBackedTasksManager.loadFromFile(file, compactionThreshold,
+                    DurabilityPolicy.synchronous())));
+
+            manager.batch(batch -> {
+                batch.deleteTaskById(1);
+                batch.createTask(new Task("Новая", "Задача", Status.DONE));
+                batch.createSubtask(new Subtask("Ещё", "", Status.DONE, 2));
+            });
+            assertEquals(saves + 1, manager.getPersistenceMetrics().getSaveLatency().getCount());
+            List<String> after = describe(manager);
+            manager.close();
+            assertEquals(after, describe(FileBackedTasksManager.loadFromFile(file, compactionThreshold,
+                    DurabilityPolicy.synchronous())));
+
+            FileBackedTasksManager reloaded = FileBackedTasksManager.loadFromFile(file, compactionThreshold,
+                    DurabilityPolicy.synchronous());
+            failHalfway(reloaded);
+            assertEquals(after, describe(reloaded));
+            reloaded.close();
+        }
+    }
+
+    @Test
+    void fileBackedBatchRollsBackNextId() {
+        FileBackedTasksManager manager = new FileBackedTasksManager(new File(directory, "tasks.csv"));
+        fill(manager);
+        List<String> before = describe(manager);
+
+        failHalfway(manager);
+
+        assertRolledBack(manager, before);
+        manager.close();
+    }
+}
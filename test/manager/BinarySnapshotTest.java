@@ -0,0 +1,102 @@
+package manager;
+
+import enums.SnapshotFormat;
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    File directory;
+
+    private static List<String> describe(FileBackedTasksManager manager) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            lines.add(task.getClass().getSimpleName() + "," + task.getId() + "," + task.getName() + ","
+                    + task.getDescription() + "," + task.getStatus()
+                    + (task instanceof Subtask ? "," + ((Subtask) task).getEpicId() : ""));
+        }
+        lines.add(manager.getHistory().stream().map(Task::getId).collect(Collectors.toList()).toString());
+        return lines;
+    }
+
+    // Двоичный снимок -> CSV -> двоичный снимок без потерь, включая null и историю
+    @Test
+    void roundTripsBetweenBinaryAndCsv() {
+        File file = new File(directory, "tasks.bin");
+        FileBackedTasksManager manager = new FileBackedTasksManager(file, 0, DurabilityPolicy.synchronous(),
+                SnapshotFormat.BINARY);
+        manager.createTask(new Task("Созвон", null, Status.IN_PROGRESS));
+        Epic epic = new Epic("Переезд", "Описание, с запятой");
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask("Коробки", "Описание", Status.DONE, epic.getId()));
+        manager.getEpicById(epic.getId());
+        manager.getTaskById(1);
+        List<String> expected = describe(manager);
+        manager.close();
+        assertTrue(BinarySnapshot.isBinary(file));
+
+        FileBackedTasksManager asCsv = FileBackedTasksManager.loadFromFile(file, 0, DurabilityPolicy.synchronous(),
+                SnapshotFormat.CSV);
+        assertEquals(expected, describe(asCsv));
+        asCsv.close();
+        assertFalse(BinarySnapshot.isBinary(file));
+
+        FileBackedTasksManager asBinary = FileBackedTasksManager.loadFromFile(file, 0,
+                DurabilityPolicy.synchronous(), SnapshotFormat.BINARY);
+        assertEquals(expected, describe(asBinary));
+        asBinary.close();
+        assertTrue(BinarySnapshot.isBinary(file));
+        assertEquals(expected, describe(FileBackedTasksManager.loadFromFile(file)));
+    }
+
+    // Чужая сигнатура, другая версия, битые длины строк и размер истории - ManagerSaveException
+    @Test
+    void rejectsForeignAndCorruptSnapshots() throws IOException {
+        File file = new File(directory, "tasks.bin");
+        BinarySnapshot.write(file, List.of(new Task("Созвон", "Описание", 1, Status.NEW)),
+                List.of(), List.of(), List.of(1));
+        byte[] valid = Files.readAllBytes(file.toPath());
+        // magic, версия и число записей, затем у задачи тип, id и статус
+        int nameLength = Integer.BYTES + 1 + Integer.BYTES + 1 + Integer.BYTES + 1;
+        int historySize = valid.length - 2 * Integer.BYTES;
+
+        List<byte[]> broken = new ArrayList<>();
+        broken.add(patch(valid, 0, 0x12345678));
+        byte[] version = valid.clone();
+        version[Integer.BYTES] = BinarySnapshot.VERSION + 1;
+        broken.add(version);
+        broken.add(patch(valid, nameLength, -2));
+        broken.add(patch(valid, nameLength, Integer.MAX_VALUE));
+        broken.add(patch(valid, historySize, Integer.MAX_VALUE));
+        broken.add(patch(valid, historySize, -1));
+
+        for (byte[] bytes : broken) {
+            Files.write(file.toPath(), bytes);
+            assertThrows(ManagerSaveException.class, () -> BinarySnapshot.read(file, task -> { }));
+        }
+    }
+
+    private static byte[] patch(byte[] bytes, int position, int value) {
+        byte[] patched = bytes.clone();
+        ByteBuffer.wrap(patched).putInt(position, value);
+        return patched;
+    }
+}
@@ -0,0 +1,116 @@
+package manager;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrentTaskManagerTest {
+
+    // Читатель без блокировок обходит состав эпика, пока другой поток добавляет и удаляет подзадачи
+    @Test
+    void epicReadWhileSubtasksChangeSeesConsistentState() throws InterruptedException {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4);
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        int epicId = epic.getId();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    Subtask subtask = new Subtask("Подзадача", "Описание", Status.IN_PROGRESS, epicId);
+                    manager.createSubtask(subtask);
+                    manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epicId));
+                    manager.deleteSubtaskById(subtask.getId());
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    checkEpic(manager.getEpics().get(epicId));
+                    checkEpic(manager.getEpicById(epicId));
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+
+        writer.start();
+        reader.start();
+        Thread.sleep(1000);
+        stop.set(true);
+        writer.join();
+        reader.join();
+
+        assertNull(failure.get(), () -> "Ошибка при параллельной работе: " + failure.get());
+    }
+
+    private static void checkEpic(Epic epic) {
+        int counted = 0;
+        for (Status status : Status.values()) {
+            counted += epic.getSubtaskStatusCount(status);
+        }
+        int size = epic.getSubtaskCount();
+        if (size != counted) {
+            throw new AssertionError("Состав и счётчики эпика разошлись: " + size + " != " + counted);
+        }
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            int id = epic.getSubtaskId(i);
+            if (id <= previous) {
+                throw new AssertionError("Подзадачи эпика не упорядочены: " + id + " после " + previous);
+            }
+            previous = id;
+        }
+    }
+
+    // Выданный эпик не меняется последующими мутациями
+    @Test
+    void returnedEpicIsNotChangedByLaterMutations() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        Epic before = manager.getEpicById(epic.getId());
+
+        manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+
+        assertEquals(0, before.getSubtaskCount());
+        assertEquals(Status.NEW, before.getStatus());
+        Epic after = manager.getEpicById(epic.getId());
+        assertEquals(1, after.getSubtaskCount());
+        assertEquals(Status.DONE, after.getStatus());
+    }
+
+    @Test
+    void rolledBackBatchRestoresEpicSubtasksAndStatus() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        Subtask done = new Subtask("Готово", "Описание", Status.DONE, epic.getId());
+        manager.createSubtask(done);
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(m -> {
+            m.createSubtask(new Subtask("Новая", "Описание", Status.NEW, epic.getId()));
+            m.deleteAllSubtasks();
+            throw new IllegalStateException("откат");
+        }));
+
+        Epic restored = manager.getEpicById(epic.getId());
+        assertEquals(List.of(done.getId()), restored.getSubtaskIds());
+        assertEquals(Status.DONE, restored.getStatus());
+        assertEquals(1, manager.getSubtasksByEpicId(epic.getId()).size());
+    }
+}
@@ -0,0 +1,75 @@
+package manager;
+
+import enums.SnapshotFormat;
+import enums.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileBackedHistoryTest {
+    private static final long MAX_AGE_MILLIS = 300;
+
+    @TempDir
+    File directory;
+
+    private FileBackedTasksManager load(File file, int compactionThreshold) {
+        return FileBackedTasksManager.loadFromFile(file, compactionThreshold, DurabilityPolicy.synchronous(),
+                SnapshotFormat.CSV, Managers.getBoundedHistory(0, MAX_AGE_MILLIS));
+    }
+
+    private static List<Integer> historyIds(FileBackedTasksManager manager) {
+        return manager.getHistory().stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    // Просмотры, устаревшие до перезагрузки, не возвращаются в историю
+    @Test
+    void expiredViewsStayExpiredAfterReload() throws InterruptedException {
+        for (int compactionThreshold : new int[]{0, 100}) {
+            File file = new File(directory, "tasks-" + compactionThreshold + ".csv");
+            FileBackedTasksManager manager = new FileBackedTasksManager(file, compactionThreshold,
+                    DurabilityPolicy.synchronous(), SnapshotFormat.CSV, Managers.getBoundedHistory(0, MAX_AGE_MILLIS));
+            Task old = new Task("Старая", "Описание", Status.NEW);
+            manager.createTask(old);
+            manager.getTaskById(old.getId());
+            manager.close();
+
+            Thread.sleep(MAX_AGE_MILLIS * 2);
+
+            FileBackedTasksManager reloaded = load(file, compactionThreshold);
+            assertTrue(reloaded.getHistory().isEmpty(), "порог " + compactionThreshold);
+            Task fresh = new Task("Новая", "Описание", Status.NEW);
+            reloaded.createTask(fresh);
+            reloaded.getTaskById(fresh.getId());
+            reloaded.close();
+
+            FileBackedTasksManager again = load(file, compactionThreshold);
+            assertEquals(List.of(fresh.getId()), historyIds(again), "порог " + compactionThreshold);
+            again.close();
+        }
+    }
+
+    // Без ограничения возраста история переживает перезагрузку в прежнем порядке
+    @Test
+    void unboundedHistoryKeepsOrderAfterReload() {
+        File file = new File(directory, "tasks.csv");
+        FileBackedTasksManager manager = new FileBackedTasksManager(file, 100);
+        Task first = new Task("Первая", "Описание", Status.NEW);
+        Task second = new Task("Вторая", "Описание", Status.DONE);
+        manager.createTask(first);
+        manager.createTask(second);
+        manager.getTaskById(second.getId());
+        manager.getTaskById(first.getId());
+        manager.close();
+
+        FileBackedTasksManager reloaded = FileBackedTasksManager.loadFromFile(file, 100);
+        assertEquals(List.of(second.getId(), first.getId()), historyIds(reloaded));
+        reloaded.close();
+    }
+}
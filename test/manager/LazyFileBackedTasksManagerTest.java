@@ -0,0 +1,43 @@
+package manager;
+
+import enums.Status;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LazyFileBackedTasksManagerTest {
+
+    @TempDir
+    File directory;
+
+    // Битый id или id эпика прерывает загрузку, как и при полном разборе снимка
+    @Test
+    void malformedNumbersFailLoading() throws IOException {
+        File file = new File(directory, "tasks.csv");
+        FileBackedTasksManager manager = new FileBackedTasksManager(file);
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+        manager.close();
+        String snapshot = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+
+        for (String broken : new String[]{
+                snapshot.replace("\n2,TASK", "\n2x,TASK"),
+                snapshot.replace("\n2,TASK", "\n99999999999,TASK"),
+                snapshot.replace(",DONE,Описание,1", ",DONE,Описание,"),
+                snapshot.replace(",DONE,Описание,1", ",DONE,Описание,1a")}) {
+            Files.writeString(file.toPath(), broken, StandardCharsets.UTF_8);
+            assertThrows(ManagerSaveException.class, () -> LazyFileBackedTasksManager.loadFromFile(file), broken);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package manager;
+
+import enums.ForcePolicy;
+import enums.Status;
+import enums.TaskType;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedTasksManagerTest {
+
+    @TempDir
+    File directory;
+
+    private static List<Integer> ids(List<? extends Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    // После повторного открытия задачи, состав и статусы эпиков, индексы и история те же
+    @Test
+    void reopenedManagerReadsTasksFromFile() {
+        File file = new File(directory, "tasks.db");
+        MappedTasksManager manager = new MappedTasksManager(file, ForcePolicy.ON_CLOSE);
+        Task task = new Task("Созвон", "Описание ".repeat(20), Status.IN_PROGRESS);
+        Epic epic = new Epic("Переезд", "Описание");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask first = new Subtask("Коробки", "Описание", Status.DONE, epic.getId());
+        Subtask second = new Subtask("Грузчики", "Описание", Status.NEW, epic.getId());
+        manager.createSubtasks(List.of(first, second));
+        manager.getSubtaskById(second.getId());
+        manager.getTaskById(task.getId());
+        manager.close();
+
+        MappedTasksManager reopened = new MappedTasksManager(file, ForcePolicy.ON_CLOSE);
+        assertEquals(task.getDescription(), reopened.getTasks().get(task.getId()).getDescription());
+        assertEquals(Status.IN_PROGRESS, reopened.getEpics().get(epic.getId()).getStatus());
+        assertEquals(List.of(first.getId(), second.getId()), reopened.getEpics().get(epic.getId()).getSubtaskIds());
+        assertEquals(List.of(first.getId(), second.getId()), ids(reopened.getSubtasksByEpicId(epic.getId())));
+        assertEquals(1, reopened.countByStatus(TaskType.SUBTASK, Status.DONE));
+        assertEquals(List.of(task.getId()), ids(reopened.search("созвон")));
+        assertEquals(List.of(second.getId(), task.getId()), ids(reopened.getHistory()));
+
+        Task created = new Task("Новая", "Описание", Status.NEW);
+        reopened.createTask(created);
+        assertEquals(second.getId() + 1, created.getId());
+        reopened.close();
+    }
+
+    // Откат пакета не меняет ни файл, ни индексы
+    @Test
+    void rolledBackBatchLeavesFileUnchanged() {
+        File file = new File(directory, "tasks.db");
+        MappedTasksManager manager = new MappedTasksManager(file);
+        Epic epic = new Epic("Переезд", "Описание");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask("Коробки", "Описание", Status.DONE, epic.getId());
+        manager.createSubtask(subtask);
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(batch -> {
+            batch.deleteEpicById(epic.getId());
+            batch.createTask(new Task("Задача", "Описание", Status.NEW));
+            throw new IllegalStateException("Сбой посреди пакета");
+        }));
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(1, manager.countByStatus(TaskType.SUBTASK, Status.DONE));
+        assertEquals(0, manager.getTasks().size());
+        manager.close();
+
+        MappedTasksManager reopened = new MappedTasksManager(file);
+        assertEquals(List.of(subtask.getId()), ids(reopened.getSubtasksByEpicId(epic.getId())));
+        assertNull(reopened.getTaskById(subtask.getId() + 1));
+        reopened.close();
+    }
+}
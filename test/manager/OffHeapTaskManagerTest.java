@@ -0,0 +1,76 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapTaskManagerTest {
+
+    private static List<Integer> historyIds(TaskManager manager) {
+        return manager.getHistory().stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    // deleteSubtaskById с id задачи или эпика ничего не меняет, как и в InMemoryTaskManager
+    @Test
+    void deleteSubtaskByIdOfOtherTypeKeepsHistory() {
+        for (TaskManager manager : List.of(new InMemoryTaskManager(), new OffHeapTaskManager())) {
+            Task task = new Task("Задача", "Описание", Status.NEW);
+            Epic epic = new Epic("Эпик", "Описание");
+            manager.createTask(task);
+            manager.createEpic(epic);
+            manager.getTaskById(task.getId());
+            manager.getEpicById(epic.getId());
+
+            manager.deleteSubtaskById(task.getId());
+            manager.deleteSubtaskById(epic.getId());
+
+            String name = manager.getClass().getSimpleName();
+            assertEquals(List.of(task.getId(), epic.getId()), historyIds(manager), name);
+            assertEquals(1, manager.getTasks().size(), name);
+            assertEquals(1, manager.getEpics().size(), name);
+        }
+    }
+
+    private static List<Integer> ids(List<? extends Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+
+    // Индекс статусов и индекс слов следуют за мутациями и возвращаются при откате пакета
+    @Test
+    void indexesFollowMutationsAndRollback() {
+        OffHeapTaskManager manager = new OffHeapTaskManager();
+        manager.createTask(new Task("Созвон", "Еженедельный", Status.NEW));
+        Epic epic = new Epic("Переезд", "Квартира");
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask("Коробки", "Купить", Status.DONE, epic.getId()));
+        assertEquals(List.of(1), ids(manager.search("созвон")));
+
+        assertThrows(IllegalStateException.class, () -> manager.batch(batch -> {
+            batch.updateTask(new Task("Планёрка", "Ежедневная", 1, Status.DONE));
+            batch.deleteAllSubtasks();
+            batch.createTask(new Task("Созвон", "Новый", Status.NEW));
+            throw new IllegalStateException("Сбой посреди пакета");
+        }));
+        assertEquals(List.of(1), ids(manager.search("созвон")));
+        assertEquals(List.of(), ids(manager.search("планёрка")));
+        assertEquals(List.of(3), ids(manager.getTasksByStatus(TaskType.SUBTASK, Status.DONE)));
+        assertEquals(List.of(2), ids(manager.getTasksByStatus(TaskType.EPIC, Status.DONE)));
+
+        manager.deleteAllEpics();
+        manager.updateTask(new Task("Планёрка", "Ежедневная", 1, Status.DONE));
+        assertEquals(List.of(), ids(manager.search("созвон")));
+        assertEquals(List.of(1), ids(manager.search("планёрка")));
+        assertEquals(0, manager.countByStatus(TaskType.SUBTASK, Status.DONE));
+        assertEquals(List.of(1), ids(manager.getTasksByStatus(TaskType.TASK, Status.DONE)));
+    }
+}
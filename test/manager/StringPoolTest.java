@@ -0,0 +1,56 @@
+package manager;
+
+import enums.SnapshotFormat;
+import enums.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StringPoolTest {
+
+    @TempDir
+    File directory;
+
+    // Названия, прочитанные из снимка и из журнала, после загрузки - один экземпляр
+    @Test
+    void loadedTasksShareNames() {
+        for (int compactionThreshold : new int[]{0, 100}) {
+            File file = new File(directory, "tasks-" + compactionThreshold + ".csv");
+            FileBackedTasksManager manager = new FileBackedTasksManager(file, compactionThreshold);
+            for (int i = 0; i < 4; i++) {
+                manager.createTask(new Task("Созвон", "Еженедельный", Status.NEW));
+            }
+            manager.close();
+
+            FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file, compactionThreshold,
+                    DurabilityPolicy.synchronous(), SnapshotFormat.CSV, Managers.getDefaultHistory(),
+                    new StringPool(64));
+            List<Task> tasks = new ArrayList<>(loaded.getTasks().values());
+            assertEquals(4, tasks.size());
+            for (Task task : tasks) {
+                assertSame(tasks.get(0).getName(), task.getName(), "порог " + compactionThreshold);
+                assertSame(tasks.get(0).getDescription(), task.getDescription(), "порог " + compactionThreshold);
+            }
+            loaded.close();
+        }
+    }
+
+    @Test
+    void concurrentManagerSharesNames() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(4, Managers.getConcurrentHistory(),
+                new StringPool(64));
+        Task first = new Task(new String("Созвон"), "Описание", Status.NEW);
+        Task second = new Task(new String("Созвон"), "Описание", Status.NEW);
+        manager.createTask(first);
+        manager.createTask(second);
+
+        assertSame(manager.getTaskById(first.getId()).getName(), manager.getTaskById(second.getId()).getName());
+    }
+}
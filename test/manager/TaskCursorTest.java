@@ -0,0 +1,86 @@
+package manager;
+
+import enums.Status;
+import enums.TaskType;
+import interfaces.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskPage;
+import model.TaskQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TaskCursorTest {
+
+    private static List<Integer> createTasks(TaskManager manager) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Task task = new Task("Задача " + i, "Описание", i % 2 == 0 ? Status.NEW : Status.DONE);
+            manager.createTask(task);
+            ids.add(task.getId());
+        }
+        Epic epic = new Epic("Эпик", "Описание");
+        manager.createEpic(epic);
+        ids.add(epic.getId());
+        for (int i = 0; i < 5; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание", Status.IN_PROGRESS, epic.getId());
+            manager.createSubtask(subtask);
+            ids.add(subtask.getId());
+        }
+        return ids;
+    }
+
+    // Постраничный обход с теми же параметрами и токеном: смещение применяется один раз
+    private static List<Integer> readAllPages(TaskManager manager, TaskQuery query) {
+        List<Integer> ids = new ArrayList<>();
+        String token = null;
+        do {
+            TaskPage page = manager.queryTasks(query.after(token));
+            for (Task task : page.getTasks()) {
+                ids.add(task.getId());
+            }
+            token = page.getContinuationToken();
+        } while (token != null);
+        return ids;
+    }
+
+    @Test
+    void pagesWithOffsetSkipOnlyOnce() {
+        for (TaskManager manager : List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new OffHeapTaskManager())) {
+            List<Integer> all = createTasks(manager);
+
+            assertEquals(all, readAllPages(manager, TaskQuery.all().limit(3)), manager.getClass().getSimpleName());
+            assertEquals(all.subList(2, all.size()), readAllPages(manager, TaskQuery.all().skip(2).limit(3)),
+                    manager.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void pagesMatchStreamWithFilters() {
+        TaskManager manager = new InMemoryTaskManager();
+        createTasks(manager);
+        TaskQuery query = TaskQuery.all().ofType(TaskType.TASK).withStatus(Status.NEW).skip(1);
+
+        List<Integer> streamed = manager.streamTasks(query).map(Task::getId).collect(Collectors.toList());
+        assertEquals(streamed, readAllPages(manager, query.limit(1)));
+        assertEquals(3, streamed.size());
+    }
+
+    @Test
+    void lastPageHasNoToken() {
+        TaskManager manager = new InMemoryTaskManager();
+        createTasks(manager);
+
+        TaskPage page = manager.queryTasks(TaskQuery.all().ofType(TaskType.EPIC).limit(5));
+        assertEquals(1, page.getTasks().size());
+        assertNull(page.getContinuationToken());
+    }
+}
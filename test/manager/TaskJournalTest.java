@@ -0,0 +1,76 @@
+package manager;
+
+import enums.Status;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskJournalTest {
+
+    @TempDir
+    File directory;
+
+    private File createJournaled(int tasks) {
+        File file = new File(directory, "tasks.csv");
+        FileBackedTasksManager manager = new FileBackedTasksManager(file, 100);
+        for (int i = 0; i < tasks; i++) {
+            manager.createTask(new Task("Задача " + i, "Описание", Status.NEW));
+        }
+        manager.close();
+        return file;
+    }
+
+    // Половина записи в конце журнала - недописанная запись: загрузка её пропускает и обрезает журнал
+    @Test
+    void tornLastRecordIsTruncated() throws IOException {
+        File file = createJournaled(3);
+        File journal = new File(file.getPath() + ".journal");
+        byte[] complete = Files.readAllBytes(journal.toPath());
+        List<String> records = Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8);
+        String last = records.get(records.size() - 1);
+
+        for (String tail : new String[]{last.substring(0, last.length() / 2),
+                last.substring(0, last.indexOf(',') + 2) + System.lineSeparator()}) {
+            Files.write(journal.toPath(), tail.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            FileBackedTasksManager loaded = FileBackedTasksManager.loadFromFile(file, 100,
+                    DurabilityPolicy.synchronous());
+            assertEquals(3, loaded.getTasks().size(), tail);
+            assertEquals(complete.length, journal.length(), tail);
+
+            // Новые записи дописываются после последней целой
+            Task extra = new Task("Ещё", "Описание", Status.NEW);
+            loaded.createTask(extra);
+            loaded.close();
+            FileBackedTasksManager reloaded = FileBackedTasksManager.loadFromFile(file, 100,
+                    DurabilityPolicy.synchronous());
+            assertEquals(4, reloaded.getTasks().size(), tail);
+            reloaded.deleteTaskById(extra.getId());
+            reloaded.close();
+            complete = Files.readAllBytes(journal.toPath());
+        }
+    }
+
+    // Битая запись не в конце журнала - повреждение, загрузка прерывается
+    @Test
+    void corruptRecordBeforeTailFailsLoading() throws IOException {
+        File file = createJournaled(3);
+        File journal = new File(file.getPath() + ".journal");
+        List<String> records = Files.readAllLines(journal.toPath(), StandardCharsets.UTF_8);
+        records.add(1, "PUT,битая");
+        Files.write(journal.toPath(), records, StandardCharsets.UTF_8);
+
+        assertThrows(ManagerSaveException.class,
+                () -> FileBackedTasksManager.loadFromFile(file, 100, DurabilityPolicy.synchronous()));
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntArraySetTest {
+
+    private static void assertSameContents(TreeSet<Integer> expected, IntArraySet actual) {
+        assertEquals(expected.size(), actual.size());
+        int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(values, actual.toArray());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], actual.get(i));
+            assertEquals(i, actual.indexOf(values[i]));
+        }
+    }
+
+    // Случайные вставки и удаления в несколько кусков совпадают с TreeSet
+    @Test
+    void matchesTreeSetAcrossChunks() {
+        Random random = new Random(7);
+        TreeSet<Integer> expected = new TreeSet<>();
+        IntArraySet actual = new IntArraySet();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), actual.remove(value));
+            } else {
+                assertEquals(expected.add(value), actual.add(value));
+            }
+            int probe = random.nextInt(3_100) - 50;
+            int position = actual.indexOf(probe);
+            assertEquals(expected.contains(probe), position >= 0);
+            if (position < 0) {
+                assertEquals(expected.headSet(probe).size(), -position - 1);
+            }
+        }
+        assertSameContents(expected, actual);
+    }
+
+    // Копии делят куски, но изменения одной не видны в других
+    @Test
+    void copiesDoNotSeeEachOthersChanges() {
+        IntArraySet original = new IntArraySet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 1; i <= 1_000; i++) {
+            original.add(i * 2);
+            expected.add(i * 2);
+        }
+
+        List<IntArraySet> copies = new ArrayList<>();
+        List<TreeSet<Integer>> copiesExpected = new ArrayList<>();
+        IntArraySet previous = original;
+        TreeSet<Integer> previousExpected = expected;
+        for (int i = 0; i < 5; i++) {
+            IntArraySet copy = new IntArraySet();
+            copy.copyFrom(previous);
+            TreeSet<Integer> copyExpected = new TreeSet<>(previousExpected);
+            copy.add(i * 400 + 1);
+            copy.remove(i * 400 + 2);
+            copyExpected.add(i * 400 + 1);
+            copyExpected.remove(i * 400 + 2);
+            copies.add(copy);
+            copiesExpected.add(copyExpected);
+            previous = copy;
+            previousExpected = copyExpected;
+        }
+        original.add(5);
+        original.remove(600);
+        expected.add(5);
+        expected.remove(600);
+
+        assertSameContents(expected, original);
+        for (int i = 0; i < copies.size(); i++) {
+            assertSameContents(copiesExpected.get(i), copies.get(i));
+        }
+    }
+}
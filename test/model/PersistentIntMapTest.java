@@ -0,0 +1,76 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PersistentIntMapTest {
+
+    // Снимки берутся из другого потока, пока владелец пишет: содержимое снимка не меняется
+    @Test
+    void snapshotTakenWhileOwnerWritesStaysConsistent() throws InterruptedException {
+        PersistentIntMap<Integer> map = new PersistentIntMap<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // Ключи 1..n, значение равно ключу: размер снимка должен совпадать с числом ключей по порядку
+        Thread writer = new Thread(() -> {
+            int next = 1;
+            while (!stop.get()) {
+                map.put(next, next);
+                if (next % 64 == 0) {
+                    for (int key = next - 63; key <= next; key++) {
+                        map.remove(key);
+                    }
+                    for (int key = next - 63; key <= next; key++) {
+                        map.put(key, key);
+                    }
+                }
+                next++;
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    PersistentIntMap.Snapshot<Integer> snapshot = map.snapshot();
+                    List<Integer> first = new ArrayList<>(snapshot.values());
+                    check(first, snapshot.size());
+                    Thread.yield();
+                    List<Integer> second = new ArrayList<>(snapshot.values());
+                    if (!first.equals(second)) {
+                        throw new AssertionError("Снимок изменился: " + first.size() + " -> " + second.size());
+                    }
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+
+        writer.start();
+        reader.start();
+        Thread.sleep(1000);
+        stop.set(true);
+        writer.join();
+        reader.join();
+
+        assertNull(failure.get(), () -> "Ошибка при параллельной работе: " + failure.get());
+    }
+
+    private static void check(List<Integer> values, int size) {
+        if (values.size() != size) {
+            throw new AssertionError("Размер снимка " + size + ", значений " + values.size());
+        }
+        int previous = 0;
+        for (int value : values) {
+            if (value <= previous) {
+                throw new AssertionError("Значения снимка не упорядочены: " + value + " после " + previous);
+            }
+            previous = value;
+        }
+    }
+}